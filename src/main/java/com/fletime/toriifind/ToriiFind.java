@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.fletime.toriifind.config.SourceConfig;
+import com.fletime.toriifind.service.HttpTransport;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,8 +16,6 @@ import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
@@ -79,6 +78,8 @@ public class ToriiFind implements ClientModInitializer {
 			})
 			.thenRun(() -> {
 				LOGGER.info("[ToriiFind] 数据源初始化和更新检查完成");
+				// 预先加载当前数据源，补全不需要等待第一次查询
+				com.fletime.toriifind.service.DatasetCache.preload(getCurrentSourceName());
 			})
 			.exceptionally(throwable -> {
 				LOGGER.error("[ToriiFind] 数据源初始化失败: " + throwable.getMessage());
@@ -211,13 +212,9 @@ public class ToriiFind implements ClientModInitializer {
 	 * @throws IOException 网络或解析异常
 	 */
 	private int fetchServerConfigVersion(String serverUrl) throws IOException {
-		HttpURLConnection conn = (HttpURLConnection) new URL(serverUrl).openConnection();
-		conn.setRequestMethod("GET");
-		conn.setConnectTimeout(5000);
-		conn.setReadTimeout(5000);
-		try (InputStream in = conn.getInputStream()) {
-			String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-			JsonObject jsonObject = JsonParser.parseString(json).getAsJsonObject();
+		try (Reader reader = new java.io.InputStreamReader(
+				HttpTransport.openStream(serverUrl, HttpTransport.Timeout.QUERY), StandardCharsets.UTF_8)) {
+			JsonObject jsonObject = JsonParser.parseReader(reader).getAsJsonObject();
 			if (jsonObject.has("version")) {
 				return jsonObject.get("version").getAsInt();
 			}
@@ -232,11 +229,7 @@ public class ToriiFind implements ClientModInitializer {
 	 * @throws IOException 网络或写入异常
 	 */
 	private void downloadServerConfig(Path configFile, String serverUrl) throws IOException {
-		HttpURLConnection conn = (HttpURLConnection) new URL(serverUrl).openConnection();
-		conn.setRequestMethod("GET");
-		conn.setConnectTimeout(5000);
-		conn.setReadTimeout(5000);
-		try (InputStream in = conn.getInputStream()) {
+		try (InputStream in = HttpTransport.openStream(serverUrl, HttpTransport.Timeout.QUERY)) {
 			Files.copy(in, configFile, StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
@@ -1,9 +1,5 @@
 package com.fletime.toriifind;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
@@ -11,7 +7,6 @@ import com.mojang.brigadier.context.CommandContext;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
-import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.ClickEvent;
 import net.minecraft.text.HoverEvent;
@@ -19,25 +14,26 @@ import net.minecraft.text.MutableText;
 import net.minecraft.text.Style;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
-import net.sourceforge.pinyin4j.PinyinHelper;
-import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
-import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
-import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
-import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
 import com.fletime.toriifind.config.SourceConfig;
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkFilter;
+import com.fletime.toriifind.data.LandmarkSection;
+import com.fletime.toriifind.data.ValueDictionary;
+import com.fletime.toriifind.index.SpatialGrid;
+import com.fletime.toriifind.service.DatasetCache;
+import com.fletime.toriifind.service.IncrementalSearch;
 import com.fletime.toriifind.service.LynnApiService;
 import com.fletime.toriifind.service.LynnJsonService;
 import com.fletime.toriifind.service.SourceStatusService;
+import com.fletime.toriifind.service.SuggestionService;
 import com.fletime.toriifind.service.AsyncSourceStatusService;
 import com.fletime.toriifind.service.MirrorStatusService;
 
-import java.io.IOException;
-import java.io.Reader;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.argument;
 import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.literal;
@@ -47,98 +43,16 @@ import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.lit
  * 负责注册 /toriifind 相关命令，并实现数据搜索、拼音支持、结果展示等功能。
  */
 public class ToriiFindCommand {
-    // 零洲数据类
-    private static class Torii {
-        private final String id;
-        private final String name;
-        private final String level;
-
-        /**
-         * 构造函数
-         * @param id 编号
-         * @param name 名称
-         * @param level 等级
-         */
-        public Torii(String id, String name, String level) {
-            this.id = id;
-            this.name = name;
-            this.level = level;
-        }
-
-        @Override
-        public String toString() {
-            return id + " " + level + " " + name;
-        }
-    }
-
-    // 后土数据类
-    private static class Houtu {
-        private final String id;
-        private final String name;
-        private final String level;
-
-        /**
-         * 构造函数
-         * @param id 编号
-         * @param name 名称
-         * @param level 等级
-         */
-        public Houtu(String id, String name, String level) {
-            this.id = id;
-            this.name = name;
-            this.level = level;
-        }
-
-        @Override
-        public String toString() {
-            return id + " " + level + " " + name;
-        }
-    }
-
-    // 拼音格式化工具（单例）
-    private static HanyuPinyinOutputFormat pinyinFormat;
-    private static HanyuPinyinOutputFormat getPinyinFormat() {
-        if (pinyinFormat == null) {
-            pinyinFormat = new HanyuPinyinOutputFormat();
-            // 小写，不带声调
-            pinyinFormat.setCaseType(HanyuPinyinCaseType.LOWERCASE);
-            pinyinFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
-        }
-        return pinyinFormat;
-    }
+    // 单次查询在聊天栏中最多展示的结果条数
+    private static final int MAX_DISPLAY_RESULTS = 10;
+    // near 命令未指定数量时返回的条数
+    private static final int DEFAULT_NEAR_RESULTS = 5;
+    // 零洲编号：数字或数字区间，如 "12"、"100-200"
+    private static final Pattern ZEROTH_NUMBER = Pattern.compile("\\d{1,18}(-\\d{1,18})?");
     
-    /**
-     * 将中文字符串转换为拼音字符串（不带声调），抄来的，爽
-     * @param chineseStr 中文字符串
-     * @return 对应的拼音字符串，非中文字符保持不变
-     */
-    private static String toPinyin(String chineseStr) {
-        if (chineseStr == null || chineseStr.isEmpty()) {
-            return "";
-        }
-        StringBuilder pinyinBuilder = new StringBuilder();
-        char[] chars = chineseStr.toCharArray();
-        try {
-            for (char c : chars) {
-                // 判断是否是汉字
-                if (Character.toString(c).matches("[\\u4E00-\\u9FA5]+")) {
-                    // 将汉字转为拼音数组（多音字会返回多个拼音）
-                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, getPinyinFormat());
-                    if (pinyinArray != null && pinyinArray.length > 0) {
-                        // 只取第一个拼音（对于多音字）
-                        pinyinBuilder.append(pinyinArray[0]);
-                    }
-                } else {
-                    // 非汉字直接添加
-                    pinyinBuilder.append(c);
-                }
-            }
-        } catch (BadHanyuPinyinOutputFormatCombination e) {
-            // 转换失败时直回原字符串
-            return chineseStr;
-        }
-        return pinyinBuilder.toString();
-    }
+    // 名称搜索的增量上下文，连续输入更长的关键字时只筛选上一次的命中
+    private static final IncrementalSearch ZEROTH_NAME_SEARCH = new IncrementalSearch();
+    private static final IncrementalSearch HOUTU_NAME_SEARCH = new IncrementalSearch();
 
     /**
      * 注册所有 toriifind 相关命令
@@ -154,9 +68,14 @@ public class ToriiFindCommand {
      * 注册命令结构
      * /toriifind help
      * /toriifind zeroth num <number>
-     * /toriifind zeroth name <keyword>
+     * /toriifind zeroth name <keyword> [filter]
+     * /toriifind zeroth list [filter]
      * /toriifind houtu num <number>
-     * /toriifind houtu name <keyword>
+     * /toriifind houtu name <keyword> [filter]
+     * /toriifind houtu list [filter]
+     * /toriifind near [count]
+     * /toriifind within <radius> [filter]
+     * /toriifind box <x1> <z1> <x2> <z2> [filter]
      * /toriifind source list
      * /toriifind source switch <name>
      * /toriifind source current
@@ -171,18 +90,48 @@ public class ToriiFindCommand {
                     .executes(context -> showHelp(context)))
                 .then(literal("zeroth")
                     .then(literal("num")
-                        .then(argument("number", IntegerArgumentType.integer(1))
-                            .executes(context -> searchZerothByNumber(context, IntegerArgumentType.getInteger(context, "number")))))
+                        .then(argument("number", StringArgumentType.string())
+                            .suggests((context, builder) -> SuggestionService.suggestIds("zeroth", builder))
+                            .executes(context -> searchZerothByNumber(context, StringArgumentType.getString(context, "number")))))
                     .then(literal("name")
                         .then(argument("keyword", StringArgumentType.greedyString())
-                            .executes(context -> searchZerothByNameOrPinyin(context, StringArgumentType.getString(context, "keyword"))))))
+                            .suggests((context, builder) -> SuggestionService.suggestNames("zeroth", builder))
+                            .executes(context -> searchZerothByNameOrPinyin(context, StringArgumentType.getString(context, "keyword")))))
+                    .then(literal("list")
+                        .executes(context -> listByFilter(context, "zeroth", null))
+                        .then(argument("filter", StringArgumentType.greedyString())
+                            .executes(context -> listByFilter(context, "zeroth", StringArgumentType.getString(context, "filter"))))))
                 .then(literal("houtu")
                     .then(literal("num")
                         .then(argument("number", StringArgumentType.string())
+                            .suggests((context, builder) -> SuggestionService.suggestIds("houtu", builder))
                             .executes(context -> searchHoutuByNumber(context, StringArgumentType.getString(context, "number")))))
                     .then(literal("name")
                         .then(argument("keyword", StringArgumentType.greedyString())
-                            .executes(context -> searchHoutuByNameOrPinyin(context, StringArgumentType.getString(context, "keyword"))))))
+                            .suggests((context, builder) -> SuggestionService.suggestNames("houtu", builder))
+                            .executes(context -> searchHoutuByNameOrPinyin(context, StringArgumentType.getString(context, "keyword")))))
+                    .then(literal("list")
+                        .executes(context -> listByFilter(context, "houtu", null))
+                        .then(argument("filter", StringArgumentType.greedyString())
+                            .executes(context -> listByFilter(context, "houtu", StringArgumentType.getString(context, "filter"))))))
+                .then(literal("near")
+                    .executes(context -> searchNearby(context, DEFAULT_NEAR_RESULTS))
+                    .then(argument("count", IntegerArgumentType.integer(1, MAX_DISPLAY_RESULTS))
+                        .executes(context -> searchNearby(context, IntegerArgumentType.getInteger(context, "count")))))
+                .then(literal("within")
+                    .then(argument("radius", IntegerArgumentType.integer(1))
+                        .executes(context -> searchWithin(context, IntegerArgumentType.getInteger(context, "radius"), null))
+                        .then(argument("filter", StringArgumentType.greedyString())
+                            .executes(context -> searchWithin(context, IntegerArgumentType.getInteger(context, "radius"),
+                                StringArgumentType.getString(context, "filter"))))))
+                .then(literal("box")
+                    .then(argument("x1", IntegerArgumentType.integer())
+                        .then(argument("z1", IntegerArgumentType.integer())
+                            .then(argument("x2", IntegerArgumentType.integer())
+                                .then(argument("z2", IntegerArgumentType.integer())
+                                    .executes(context -> searchBox(context, null))
+                                    .then(argument("filter", StringArgumentType.greedyString())
+                                        .executes(context -> searchBox(context, StringArgumentType.getString(context, "filter")))))))))
                 .then(literal("source")
                     .then(literal("list")
                         .executes(context -> listSources(context)))
@@ -212,6 +161,10 @@ public class ToriiFindCommand {
         context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.zeroth_name"));
         context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.houtu_num"));
         context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.houtu_name"));
+        context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.list"));
+        context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.near"));
+        context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.within"));
+        context.getSource().sendFeedback(ToriiFind.translate("toriifind.help.command.box"));
         context.getSource().sendFeedback(Text.literal("§6/toriifind source list §f- 列出所有可用的数据源"));
         context.getSource().sendFeedback(Text.literal("§6/toriifind source switch <name> §f- 切换到指定数据源"));
         context.getSource().sendFeedback(Text.literal("§6/toriifind source current §f- 显示当前使用的数据源"));
@@ -334,12 +287,17 @@ public class ToriiFindCommand {
                                 info.append("§a[最新版本]");
                             }
                             
-                            // 显示版本信息（如果存在）
-                            String version = com.fletime.toriifind.service.LocalDataService.getLocalVersion(
-                                com.fletime.toriifind.service.LocalDataService.getLocalDataFile(sourceName));
+                            // 显示版本信息（如果存在），只读取元数据
+                            String version = com.fletime.toriifind.service.LocalDataService.getLocalVersion(sourceName);
                             if (version != null && !version.isEmpty()) {
                                 info.append(" §7v").append(version);
                             }
+                            com.fletime.toriifind.service.LocalDataService.Metadata metadata =
+                                com.fletime.toriifind.service.LocalDataService.readMetadata(sourceName);
+                            if (metadata != null) {
+                                info.append(" §8").append(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+                                    .format(java.time.Instant.ofEpochMilli(metadata.getDownloadedAt()).atZone(java.time.ZoneId.systemDefault())));
+                            }
                             
                             context.getSource().sendFeedback(Text.literal(info.toString()));
                             
@@ -407,12 +365,21 @@ public class ToriiFindCommand {
     /**
      * 按编号查找零洲鸟居
      */
-    private static int searchZerothByNumber(CommandContext<FabricClientCommandSource> context, int number) {
+    private static int searchZerothByNumber(CommandContext<FabricClientCommandSource> context, String number) {
+        // 零洲编号是纯数字，只接受数字或数字区间
+        if (!ZEROTH_NUMBER.matcher(number).matches()) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.number", number));
+            return 1;
+        }
         SourceConfig.DataSource currentSource = ToriiFind.getSourceConfig().getCurrentDataSource();
         
         if (currentSource != null && currentSource.isApiMode()) {
-            // Lynn API模式
-            return searchLynnByNumber(context, String.valueOf(number), "zth");
+            // Lynn API模式：API只能按单个编号查询，不支持区间
+            if (number.indexOf('-') >= 0) {
+                context.getSource().sendError(ToriiFind.translate("toriifind.error.number", number));
+                return 1;
+            }
+            return searchLynnByNumber(context, number, "zth");
         } else {
             // 传统JSON模式
             return searchZerothByNumberJson(context, number);
@@ -420,18 +387,14 @@ public class ToriiFindCommand {
     }
     
     /**
-     * 传统JSON模式按编号查找零洲鸟居
+     * 传统JSON模式按编号查找零洲鸟居（支持区间，如 100-200）
      */
-    private static int searchZerothByNumberJson(CommandContext<FabricClientCommandSource> context, int number) {
-        List<Torii> results = new ArrayList<>();
+    private static int searchZerothByNumberJson(CommandContext<FabricClientCommandSource> context, String number) {
         try {
-            List<Torii> toriiList = loadZerothData();
-            for (Torii torii : toriiList) {
-                if (torii.id.equals(String.valueOf(number))) {
-                    results.add(torii);
-                }
-            }
-            displayZerothResults(context, results);
+            displayLynnResults(context, LynnJsonService.searchById(
+                DatasetCache.getCurrent().getZerothSection(), number, MAX_DISPLAY_RESULTS, false));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
         } catch (Exception e) {
             context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
@@ -474,11 +437,13 @@ public class ToriiFindCommand {
                     return null;
                 });
             } else {
-                // JSON模式：加载所有数据然后过滤
-                List<LynnApiService.LynnLandmark> allLandmarks = LynnJsonService.loadFromDataSource(currentSource);
-                List<LynnApiService.LynnLandmark> results = LynnJsonService.filterById(allLandmarks, number);
-                displayLynnResults(context, results);
+                // JSON模式：在内存快照的对应分区中过滤
+                LandmarkSection section = LynnJsonService.loadDatasetFromDataSource(currentSource).getSection(source);
+                // 零洲编号精确匹配，后土编号保留包含匹配
+                displayLynnResults(context, LynnJsonService.searchById(section, number, MAX_DISPLAY_RESULTS, !"zth".equals(source)));
             }
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
         } catch (Exception e) {
             context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
@@ -494,35 +459,53 @@ public class ToriiFindCommand {
             context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.not_found"));
         } else {
             for (LynnApiService.LynnLandmark landmark : results) {
-                // 基础信息
-                String formattedText = String.format(
-                    ToriiFind.translate("toriifind.result.format.entry").getString(),
-                    landmark.getId(), landmark.getGrade(), landmark.getName()
-                );
-                
-                // 添加坐标信息
-                if (landmark.getCoordinates() != null && !landmark.getCoordinates().isUnknown()) {
-                    formattedText += " §7" + landmark.getCoordinates().toString();
-                }
-                
-                // 添加状态信息
-                if (!"Normal".equals(landmark.getStatus())) {
-                    formattedText += " §c[" + landmark.getStatus() + "]";
-                }
-                
-                MutableText baseText = Text.literal(formattedText + " ");
-                String wikiUrl = "https://wiki.ria.red/wiki/" + landmark.getName();
-                Style linkStyle = Style.EMPTY
-                    .withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, wikiUrl))
-                    .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, 
-                                                  ToriiFind.translate("toriifind.result.wiki_hover", wikiUrl)))
-                    .withFormatting(Formatting.UNDERLINE);
-                MutableText linkText = ((MutableText)ToriiFind.translate("toriifind.result.wiki_link")).setStyle(linkStyle);
-                context.getSource().sendFeedback(baseText.append(linkText));
+                context.getSource().sendFeedback(createLandmarkText(landmark));
             }
             context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
         }
     }
+    
+    /**
+     * 单条结果：编号、等级、名称、坐标、状态与 Wiki 链接
+     */
+    private static MutableText createLandmarkText(LynnApiService.LynnLandmark landmark) {
+        // 基础信息
+        String formattedText = String.format(
+            ToriiFind.translate("toriifind.result.format.entry").getString(),
+            landmark.getId(), landmark.getGrade(), landmark.getName()
+        );
+        
+        // 添加坐标信息
+        if (landmark.getCoordinates() != null && !landmark.getCoordinates().isUnknown()) {
+            formattedText += " §7" + landmark.getCoordinates().toString();
+        }
+        
+        // 添加状态信息
+        if (landmark.getStatusCode() != ValueDictionary.STATUS_NORMAL) {
+            formattedText += " §c[" + landmark.getStatus() + "]";
+        }
+        
+        MutableText baseText = Text.literal(formattedText + " ");
+        String wikiUrl = "https://wiki.ria.red/wiki/" + landmark.getName();
+        Style linkStyle = Style.EMPTY
+            .withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, wikiUrl))
+            .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, 
+                                          ToriiFind.translate("toriifind.result.wiki_hover", wikiUrl)))
+            .withFormatting(Formatting.UNDERLINE);
+        MutableText linkText = ((MutableText)ToriiFind.translate("toriifind.result.wiki_link")).setStyle(linkStyle);
+        return baseText.append(linkText);
+    }
+    
+    /**
+     * 展示排序后的搜索结果，命中数超过显示上限时提示总数
+     */
+    private static void displayLynnResults(CommandContext<FabricClientCommandSource> context, LynnJsonService.SearchResult result) {
+        displayLynnResults(context, result.getLandmarks());
+        if (result.getTotal() > result.getLandmarks().size()) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.truncated",
+                result.getTotal(), result.getLandmarks().size()));
+        }
+    }
 
     /**
      * 按名称或拼音查找零洲鸟居
@@ -543,26 +526,19 @@ public class ToriiFindCommand {
      * 传统JSON模式按名称或拼音查找零洲鸟居
      */
     private static int searchZerothByNameOrPinyinJson(CommandContext<FabricClientCommandSource> context, String keyword) {
-        List<Torii> results = new ArrayList<>();
         try {
-            List<Torii> toriiList = loadZerothData();
-            // 首先，按名称进行精确匹配
-            for (Torii torii : toriiList) {
-                if (torii.name.contains(keyword)) {
-                    results.add(torii);
-                }
-            }
-            // 如果没有找到，且关键字由字母组成，则尝试按拼音进行搜索
-            if (results.isEmpty() && keyword.matches("^[a-zA-Z]+$")) {
-                String lowercaseKeyword = keyword.toLowerCase();
-                for (Torii torii : toriiList) {
-                    String namePinyin = toPinyin(torii.name).toLowerCase();
-                    if (namePinyin.contains(lowercaseKeyword)) {
-                        results.add(torii);
-                    }
-                }
+            LandmarkSection section = DatasetCache.getCurrent().getZerothSection();
+            LandmarkFilter.Query query = LandmarkFilter.parseQuery(keyword);
+            if (query.getKeyword().isEmpty()) {
+                // 只有过滤条件时等同于 list
+                return listByFilter(context, section, query.getFilter());
             }
-            displayZerothResults(context, results);
+            displayLynnResults(context, ZEROTH_NAME_SEARCH.search(
+                section, query.getKeyword(), query.getFilter().select(section), MAX_DISPLAY_RESULTS));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.filter", e.getMessage()));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
         } catch (Exception e) {
             context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
@@ -580,9 +556,14 @@ public class ToriiFindCommand {
                 // API模式：异步查询
                 context.getSource().sendFeedback(Text.literal("§6正在查询..."));
                 
+                LandmarkFilter.Query query = LandmarkFilter.parseQuery(keyword);
                 java.util.concurrent.CompletableFuture.supplyAsync(() -> {
                     try {
-                        return LynnApiService.searchLandmarks(currentSource.getApiBaseUrl(), source, keyword);
+                        List<LynnApiService.LynnLandmark> results =
+                            LynnApiService.searchLandmarks(currentSource.getApiBaseUrl(), source, query.getKeyword());
+                        // API 不支持过滤条件，在客户端按编码筛选
+                        results.removeIf(landmark -> !query.getFilter().test(landmark));
+                        return results;
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -599,11 +580,14 @@ public class ToriiFindCommand {
                     return null;
                 });
             } else {
-                // JSON模式：加载所有数据然后过滤
-                List<LynnApiService.LynnLandmark> allLandmarks = LynnJsonService.loadFromDataSource(currentSource);
-                List<LynnApiService.LynnLandmark> results = LynnJsonService.filterByNameOrPinyin(allLandmarks, keyword, ToriiFindCommand::toPinyin);
-                displayLynnResults(context, results);
+                // JSON模式：在内存快照的对应分区中过滤
+                LandmarkSection section = LynnJsonService.loadDatasetFromDataSource(currentSource).getSection(source);
+                LandmarkFilter.Query query = LandmarkFilter.parseQuery(keyword);
+                displayLynnResults(context, LynnJsonService.searchByNameOrPinyin(
+                    section, query.getKeyword(), query.getFilter().select(section), MAX_DISPLAY_RESULTS));
             }
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
         } catch (Exception e) {
             context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
@@ -629,15 +613,11 @@ public class ToriiFindCommand {
      * 传统JSON模式按编号查找后土境地
      */
     private static int searchHoutuByNumberJson(CommandContext<FabricClientCommandSource> context, String number) {
-        List<Houtu> results = new ArrayList<>();
         try {
-            List<Houtu> houtuList = loadHoutuData();
-            for (Houtu houtu : houtuList) {
-                if (houtu.id.contains(number)) {
-                    results.add(houtu);
-                }
-            }
-            displayHoutuResults(context, results);
+            displayLynnResults(context, LynnJsonService.searchById(
+                DatasetCache.getCurrent().getHoutuSection(), number, MAX_DISPLAY_RESULTS));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
         } catch (Exception e) {
             context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
@@ -663,24 +643,19 @@ public class ToriiFindCommand {
      * 传统JSON模式按名称或拼音查找后土境地
      */
     private static int searchHoutuByNameOrPinyinJson(CommandContext<FabricClientCommandSource> context, String keyword) {
-        List<Houtu> results = new ArrayList<>();
         try {
-            List<Houtu> houtuList = loadHoutuData();
-            for (Houtu houtu : houtuList) {
-                if (houtu.name.contains(keyword)) {
-                    results.add(houtu);
-                }
-            }
-            if (results.isEmpty() && keyword.matches("^[a-zA-Z]+$")) {
-                String lowercaseKeyword = keyword.toLowerCase();
-                for (Houtu houtu : houtuList) {
-                    String namePinyin = toPinyin(houtu.name).toLowerCase();
-                    if (namePinyin.contains(lowercaseKeyword)) {
-                        results.add(houtu);
-                    }
-                }
+            LandmarkSection section = DatasetCache.getCurrent().getHoutuSection();
+            LandmarkFilter.Query query = LandmarkFilter.parseQuery(keyword);
+            if (query.getKeyword().isEmpty()) {
+                // 只有过滤条件时等同于 list
+                return listByFilter(context, section, query.getFilter());
             }
-            displayHoutuResults(context, results);
+            displayLynnResults(context, HOUTU_NAME_SEARCH.search(
+                section, query.getKeyword(), query.getFilter().select(section), MAX_DISPLAY_RESULTS));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.filter", e.getMessage()));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
         } catch (Exception e) {
             context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
@@ -688,141 +663,193 @@ public class ToriiFindCommand {
     }
 
     /**
-     * 展示零洲鸟居搜索结果
+     * 按过滤条件列出分区中的记录，并给出等级与状态分布
      */
-    private static void displayZerothResults(CommandContext<FabricClientCommandSource> context, List<Torii> results) {
-        context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
-        if (results.isEmpty()) {
-            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.not_found"));
-        } else {
-            for (Torii torii : results) {
-                String formattedText = String.format(
-                    ToriiFind.translate("toriifind.result.format.entry").getString(),
-                    torii.id, torii.level, torii.name
-                );
-                MutableText baseText = Text.literal(formattedText + " ");
-                String wikiUrl = "https://wiki.ria.red/wiki/" + torii.name;
-                Style linkStyle = Style.EMPTY
-                    .withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, wikiUrl))
-                    .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, 
-                                                  ToriiFind.translate("toriifind.result.wiki_hover", wikiUrl)))
-                    .withFormatting(Formatting.UNDERLINE);
-                MutableText linkText = ((MutableText)ToriiFind.translate("toriifind.result.wiki_link")).setStyle(linkStyle);
-                context.getSource().sendFeedback(baseText.append(linkText));
+    private static int listByFilter(CommandContext<FabricClientCommandSource> context, String source, String filterText) {
+        if (isApiMode(context)) {
+            return 1;
+        }
+        
+        try {
+            LandmarkSection section = DatasetCache.getCurrent().getSection(source);
+            return listByFilter(context, section, LandmarkFilter.parse(filterText));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.filter", e.getMessage()));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
+        } catch (Exception e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
+        }
+        return 1;
+    }
+    
+    private static int listByFilter(CommandContext<FabricClientCommandSource> context, LandmarkSection section, LandmarkFilter filter) {
+        BitSet allowed = filter.select(section);
+        displayLynnResults(context, LynnJsonService.listByFilter(section, allowed, MAX_DISPLAY_RESULTS));
+        
+        // 分布直接取自位图基数
+        String grades = formatFacet(section.getGradeFacet().counts(allowed), ValueDictionary.GRADES);
+        if (!grades.isEmpty()) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.facet.grade", grades));
+        }
+        String statuses = formatFacet(section.getStatusFacet().counts(allowed), ValueDictionary.STATUSES);
+        if (!statuses.isEmpty()) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.facet.status", statuses));
+        }
+        return 1;
+    }
+    
+    // "12 赤居, 40 标居"，按数量从多到少
+    private static String formatFacet(int[] counts, ValueDictionary dictionary) {
+        List<Integer> codes = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                codes.add(code);
             }
-            context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
         }
+        codes.sort((a, b) -> Integer.compare(counts[b], counts[a]));
+        StringBuilder text = new StringBuilder();
+        for (int code : codes) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(counts[code]).append(' ').append(dictionary.decode(code));
+        }
+        return text.toString();
     }
-
+    
     /**
-     * 展示后土境地搜索结果
+     * 列出离玩家最近的若干个地标（按水平距离，坐标未知的记录不参与）
      */
-    private static void displayHoutuResults(CommandContext<FabricClientCommandSource> context, List<Houtu> results) {
-        context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
-        if (results.isEmpty()) {
-            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.not_found"));
-        } else {
-            for (Houtu houtu : results) {
-                String formattedText = String.format(
-                    ToriiFind.translate("toriifind.result.format.entry").getString(),
-                    houtu.id, houtu.level, houtu.name
-                );
-                MutableText baseText = Text.literal(formattedText + " ");
-                String wikiUrl = "https://wiki.ria.red/wiki/" + houtu.name;
-                Style linkStyle = Style.EMPTY
-                    .withClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, wikiUrl))
-                    .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, 
-                                                  ToriiFind.translate("toriifind.result.wiki_hover", wikiUrl)))
-                    .withFormatting(Formatting.UNDERLINE);
-                MutableText linkText = ((MutableText)ToriiFind.translate("toriifind.result.wiki_link")).setStyle(linkStyle);
-                context.getSource().sendFeedback(baseText.append(linkText));
-            }
-            context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
+    private static int searchNearby(CommandContext<FabricClientCommandSource> context, int count) {
+        if (isApiMode(context)) {
+            return 1;
         }
+        
+        try {
+            LandmarkDataset dataset = DatasetCache.getCurrent();
+            double x = context.getSource().getPosition().x;
+            double z = context.getSource().getPosition().z;
+            
+            // 两个分区各取 count 个，再合并取最近的 count 个
+            List<SpatialGrid.Hit> zerothHits = dataset.getZerothSection().searchNearest(x, z, count);
+            List<SpatialGrid.Hit> houtuHits = dataset.getHoutuSection().searchNearest(x, z, count);
+            displaySpatialResults(context, dataset, zerothHits, houtuHits, count, 0);
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
+        } catch (Exception e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
+        }
+        return 1;
     }
-
+    
     /**
-     * 加载零洲数据（优先使用本地文件）
-     * @return 零洲鸟居列表
-     * @throws IOException 读取异常
+     * 列出以玩家为圆心、指定半径内的地标
      */
-    private static List<Torii> loadZerothData() throws IOException {
-        // 首先尝试从本地文件读取
-        Path localFile = com.fletime.toriifind.service.LocalDataService.getLocalDataFile("fletime");
-        if (Files.exists(localFile)) {
-            try {
-                return loadZerothDataFromFile(localFile);
-            } catch (Exception e) {
-                System.err.println("[ToriiFind] 读取本地零洲数据失败，尝试从传统配置文件读取: " + e.getMessage());
-            }
+    private static int searchWithin(CommandContext<FabricClientCommandSource> context, int radius, String filterText) {
+        if (isApiMode(context)) {
+            return 1;
         }
         
-        // 回退到传统配置文件
-        Path configDir = FabricLoader.getInstance().getConfigDir();
-        Path configFile = configDir.resolve("toriifind.json");
-        return loadZerothDataFromFile(configFile);
+        try {
+            // 先加载数据集，过滤条件按已登记的字典取值解析
+            LandmarkDataset dataset = DatasetCache.getCurrent();
+            LandmarkFilter filter = LandmarkFilter.parse(filterText);
+            double x = context.getSource().getPosition().x;
+            double z = context.getSource().getPosition().z;
+            
+            SpatialGrid.Result zeroth = dataset.getZerothSection().searchWithin(x, z, radius, filter, MAX_DISPLAY_RESULTS);
+            SpatialGrid.Result houtu = dataset.getHoutuSection().searchWithin(x, z, radius, filter, MAX_DISPLAY_RESULTS);
+            displaySpatialResults(context, dataset, zeroth.getHits(), houtu.getHits(),
+                MAX_DISPLAY_RESULTS, zeroth.getTotal() + houtu.getTotal());
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.filter", e.getMessage()));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
+        } catch (Exception e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
+        }
+        return 1;
     }
     
     /**
-     * 从指定文件加载零洲数据
+     * 列出矩形区域内的地标，按离玩家的距离排列
      */
-    private static List<Torii> loadZerothDataFromFile(Path file) throws IOException {
-        List<Torii> toriiList = new ArrayList<>();
-        try (Reader reader = Files.newBufferedReader(file)) {
-            JsonObject jsonObject = JsonParser.parseReader(reader).getAsJsonObject();
-            JsonArray zerothArray = jsonObject.getAsJsonArray("zeroth");
-            for (int i = 0; i < zerothArray.size(); i++) {
-                JsonObject toriiObject = zerothArray.get(i).getAsJsonObject();
-                String id = toriiObject.get("id").getAsString();
-                String name = toriiObject.get("name").getAsString();
-                String level = toriiObject.get("grade").getAsString();
-                Torii torii = new Torii(id, name, level);
-                toriiList.add(torii);
-            }
+    private static int searchBox(CommandContext<FabricClientCommandSource> context, String filterText) {
+        if (isApiMode(context)) {
+            return 1;
+        }
+        
+        try {
+            // 先加载数据集，过滤条件按已登记的字典取值解析
+            LandmarkDataset dataset = DatasetCache.getCurrent();
+            LandmarkFilter filter = LandmarkFilter.parse(filterText);
+            int x1 = IntegerArgumentType.getInteger(context, "x1");
+            int z1 = IntegerArgumentType.getInteger(context, "z1");
+            int x2 = IntegerArgumentType.getInteger(context, "x2");
+            int z2 = IntegerArgumentType.getInteger(context, "z2");
+            double x = context.getSource().getPosition().x;
+            double z = context.getSource().getPosition().z;
+            
+            SpatialGrid.Result zeroth = dataset.getZerothSection().searchBox(x1, z1, x2, z2, x, z, filter, MAX_DISPLAY_RESULTS);
+            SpatialGrid.Result houtu = dataset.getHoutuSection().searchBox(x1, z1, x2, z2, x, z, filter, MAX_DISPLAY_RESULTS);
+            displaySpatialResults(context, dataset, zeroth.getHits(), houtu.getHits(),
+                MAX_DISPLAY_RESULTS, zeroth.getTotal() + houtu.getTotal());
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.filter", e.getMessage()));
+        } catch (DatasetCache.LoadingException e) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.loading"));
+        } catch (Exception e) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.config", e.getMessage()));
         }
-        return toriiList;
+        return 1;
     }
-
+    
     /**
-     * 加载后土数据（优先使用本地文件）
-     * @return 后土境地列表
-     * @throws IOException 读取异常
+     * 坐标查询与列表只支持JSON模式，API模式下提示并返回 true
      */
-    private static List<Houtu> loadHoutuData() throws IOException {
-        // 首先尝试从本地文件读取
-        Path localFile = com.fletime.toriifind.service.LocalDataService.getLocalDataFile("fletime");
-        if (Files.exists(localFile)) {
-            try {
-                return loadHoutuDataFromFile(localFile);
-            } catch (Exception e) {
-                System.err.println("[ToriiFind] 读取本地后土数据失败，尝试从传统配置文件读取: " + e.getMessage());
-            }
+    private static boolean isApiMode(CommandContext<FabricClientCommandSource> context) {
+        SourceConfig.DataSource currentSource = ToriiFind.getSourceConfig().getCurrentDataSource();
+        if (currentSource != null && currentSource.isApiMode()) {
+            context.getSource().sendError(ToriiFind.translate("toriifind.error.json_only"));
+            return true;
         }
-        
-        // 回退到传统配置文件
-        Path configDir = FabricLoader.getInstance().getConfigDir();
-        Path configFile = configDir.resolve("toriifind.json");
-        return loadHoutuDataFromFile(configFile);
+        return false;
     }
     
     /**
-     * 从指定文件加载后土数据
+     * 合并两个分区按距离排好序的命中并展示，附带所属世界与距离
+     * @param limit 最多展示的条数
+     * @param total 命中总数，超过展示条数时提示
      */
-    private static List<Houtu> loadHoutuDataFromFile(Path file) throws IOException {
-        List<Houtu> houtuList = new ArrayList<>();
-        try (Reader reader = Files.newBufferedReader(file)) {
-            JsonObject jsonObject = JsonParser.parseReader(reader).getAsJsonObject();
-            JsonArray houtuArray = jsonObject.getAsJsonArray("houtu");
-            for (int i = 0; i < houtuArray.size(); i++) {
-                JsonObject houtuObject = houtuArray.get(i).getAsJsonObject();
-                String id = houtuObject.get("id").getAsString();
-                String name = houtuObject.get("name").getAsString();
-                String level = houtuObject.get("grade").getAsString();
-                Houtu houtu = new Houtu(id, name, level);
-                houtuList.add(houtu);
-            }
+    private static void displaySpatialResults(CommandContext<FabricClientCommandSource> context, LandmarkDataset dataset,
+                                              List<SpatialGrid.Hit> zerothHits, List<SpatialGrid.Hit> houtuHits,
+                                              int limit, int total) {
+        context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
+        if (zerothHits.isEmpty() && houtuHits.isEmpty()) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.not_found"));
+            return;
+        }
+        
+        int zi = 0, hi = 0, shown = 0;
+        while (shown < limit && (zi < zerothHits.size() || hi < houtuHits.size())) {
+            boolean takeZeroth = hi >= houtuHits.size()
+                || (zi < zerothHits.size() && zerothHits.get(zi).getDistance() <= houtuHits.get(hi).getDistance());
+            SpatialGrid.Hit hit = takeZeroth ? zerothHits.get(zi++) : houtuHits.get(hi++);
+            LandmarkSection section = takeZeroth ? dataset.getZerothSection() : dataset.getHoutuSection();
+            
+            MutableText line = ((MutableText) ToriiFind.translate(takeZeroth
+                ? "toriifind.result.world.zeroth" : "toriifind.result.world.houtu")).append(" ");
+            line.append(createLandmarkText(section.get(hit.getId())));
+            line.append(" ").append(ToriiFind.translate("toriifind.result.distance",
+                String.valueOf(Math.round(hit.getDistance()))));
+            context.getSource().sendFeedback(line);
+            shown++;
+        }
+        context.getSource().sendFeedback(ToriiFind.translate("toriifind.divider"));
+        if (total > shown) {
+            context.getSource().sendFeedback(ToriiFind.translate("toriifind.result.truncated_area", total, shown));
         }
-        return houtuList;
     }
 
     /**
@@ -0,0 +1,212 @@
+package com.fletime.toriifind.data;
+
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 单个数据源解析后的不可变快照。
+ * 加载一次后常驻内存，查询时直接读取，不再重复解析JSON。
+ * 零洲与后土两个分区各自按需加载：分区的数据与索引在第一次用到时才生成，只查询一个世界时不为另一个付出代价。
+ * 分区建立后在后台接着建立其容错索引；两个分区都建立后 {@link #whenLoaded()} 完成。
+ */
+public class LandmarkDataset {
+    /**
+     * 分区数据的加载方式
+     */
+    @FunctionalInterface
+    public interface StoreLoader {
+        LandmarkStore load() throws IOException;
+    }
+
+    /**
+     * 分区文本索引的加载方式
+     */
+    @FunctionalInterface
+    public interface TextLoader {
+        LandmarkSection.TextIndexes load() throws IOException;
+    }
+
+    private final String version;
+    private final LazySection zeroth;
+    private final LazySection houtu;
+
+    public LandmarkDataset(String version, LandmarkStore zeroth, LandmarkStore houtu) {
+        this(version, () -> zeroth, () -> houtu);
+    }
+
+    /**
+     * @param zeroth 零洲分区的加载方式，第一次用到零洲时调用
+     * @param houtu 后土分区的加载方式，第一次用到后土时调用
+     */
+    public LandmarkDataset(String version, StoreLoader zeroth, StoreLoader houtu) {
+        this(version, zeroth, null, houtu, null);
+    }
+
+    /**
+     * 文本索引也可以直接读取（如从快照文件读取），不必从列式数据重新建立
+     * @param zerothText 零洲文本索引的加载方式；为 null 时从列式数据建立
+     * @param houtuText 后土文本索引的加载方式；为 null 时从列式数据建立
+     */
+    public LandmarkDataset(String version, StoreLoader zeroth, TextLoader zerothText,
+                           StoreLoader houtu, TextLoader houtuText) {
+        this.version = version;
+        this.zeroth = new LazySection("zeroth", zeroth, zerothText);
+        this.houtu = new LazySection("houtu", houtu, houtuText);
+    }
+
+    /**
+     * 数据文件根级别的version字段（可能为null）
+     */
+    public String getVersion() { return version; }
+
+    /**
+     * 零洲数据（按需生成对象列表）
+     */
+    public List<LynnLandmark> getZeroth() { return getZerothSection().getLandmarks(); }
+
+    /**
+     * 后土数据（按需生成对象列表）
+     */
+    public List<LynnLandmark> getHoutu() { return getHoutuSection().getLandmarks(); }
+
+    /**
+     * 零洲与后土的合并列表（零洲在前，按需生成）
+     */
+    public List<LynnLandmark> getAll() {
+        List<LynnLandmark> all = getZeroth();
+        all.addAll(getHoutu());
+        return all;
+    }
+
+    /**
+     * 零洲分区，第一次调用时加载并建立索引
+     * @throws UncheckedIOException 分区数据读取失败时抛出
+     */
+    public LandmarkSection getZerothSection() { return zeroth.section(); }
+
+    /**
+     * 后土分区，第一次调用时加载并建立索引
+     * @throws UncheckedIOException 分区数据读取失败时抛出
+     */
+    public LandmarkSection getHoutuSection() { return houtu.section(); }
+
+    /**
+     * 按API的source参数取分区
+     * @param source zth 或 houtu
+     * @throws UncheckedIOException 分区数据读取失败时抛出
+     */
+    public LandmarkSection getSection(String source) {
+        return "houtu".equals(source) ? getHoutuSection() : getZerothSection();
+    }
+
+    /**
+     * 仅查看已建立索引的分区，不触发加载
+     * @return 分区；尚未加载时为 null
+     */
+    public LandmarkSection peekSection(String source) {
+        return ("houtu".equals(source) ? houtu : zeroth).section;
+    }
+
+    /**
+     * 零洲的列式数据（加载但不建立索引，用于写出快照文件）
+     */
+    public LandmarkStore getZerothStore() { return zeroth.store(); }
+
+    /**
+     * 后土的列式数据（加载但不建立索引，用于写出快照文件）
+     */
+    public LandmarkStore getHoutuStore() { return houtu.store(); }
+
+    /**
+     * 零洲的文本索引（尚未建立时在此建立，之后建立分区时复用；用于写出快照文件）
+     */
+    public LandmarkSection.TextIndexes getZerothText() { return zeroth.text(); }
+
+    /**
+     * 后土的文本索引（尚未建立时在此建立，之后建立分区时复用；用于写出快照文件）
+     */
+    public LandmarkSection.TextIndexes getHoutuText() { return houtu.text(); }
+
+    /**
+     * 两个分区都已加载并建立索引时完成，不触发加载（用于在不额外加载分区的前提下写出快照文件）
+     */
+    public CompletableFuture<Void> whenLoaded() {
+        return CompletableFuture.allOf(zeroth.loaded, houtu.loaded);
+    }
+
+    /**
+     * 按需加载的分区；加载失败不缓存，下次用到时重试
+     */
+    private static final class LazySection {
+        private final String dataset;
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private StoreLoader loader;
+        private TextLoader textLoader;
+        private volatile LandmarkStore store;
+        private volatile LandmarkSection.TextIndexes text;
+        private volatile LandmarkSection section;
+
+        LazySection(String dataset, StoreLoader loader, TextLoader textLoader) {
+            this.dataset = dataset;
+            this.loader = loader;
+            this.textLoader = textLoader;
+        }
+
+        LandmarkStore store() {
+            LandmarkStore result = store;
+            if (result == null) {
+                synchronized (this) {
+                    result = store;
+                    if (result == null) {
+                        try {
+                            store = result = loader.load();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        // 加载后不再需要，释放其引用的文件内容
+                        loader = null;
+                    }
+                }
+            }
+            return result;
+        }
+
+        LandmarkSection.TextIndexes text() {
+            LandmarkSection.TextIndexes result = text;
+            if (result == null) {
+                synchronized (this) {
+                    result = text;
+                    if (result == null) {
+                        try {
+                            result = textLoader != null ? textLoader.load() : LandmarkSection.TextIndexes.build(store());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        text = result;
+                        textLoader = null;
+                    }
+                }
+            }
+            return result;
+        }
+
+        LandmarkSection section() {
+            LandmarkSection result = section;
+            if (result == null) {
+                synchronized (this) {
+                    result = section;
+                    if (result == null) {
+                        section = result = new LandmarkSection(dataset, store(), text());
+                        CompletableFuture.runAsync(result::buildFuzzyIndex);
+                        loaded.complete(null);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.fletime.toriifind.data;
+
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 按等级、状态、所属数据集过滤地标，语法如 "grade:白级 status:!Normal dataset:houtu"。
+ * 同一字段的多个肯定条件取并集，否定条件必须全部满足。
+ * 过滤时把条件的取值换算成字典编码集合，对分区的位图索引做与/或运算，不逐条检查记录。
+ */
+public class LandmarkFilter {
+    /**
+     * 不做任何过滤
+     */
+    public static final LandmarkFilter NONE = new LandmarkFilter();
+
+    private static final String[] FIELDS = {"grade", "status", "dataset"};
+
+    /**
+     * 拆分后的查询：关键字与过滤条件
+     */
+    public static class Query {
+        private final String keyword;
+        private final LandmarkFilter filter;
+
+        public Query(String keyword, LandmarkFilter filter) {
+            this.keyword = keyword;
+            this.filter = filter;
+        }
+
+        public String getKeyword() { return keyword; }
+        public LandmarkFilter getFilter() { return filter; }
+    }
+
+    // 条件中的原始取值；有肯定条件时才限制取值
+    private final List<String> grades = new ArrayList<>();
+    private final List<String> excludedGrades = new ArrayList<>();
+    private final List<String> statuses = new ArrayList<>();
+    private final List<String> excludedStatuses = new ArrayList<>();
+    private String dataset;
+    private String excludedDataset;
+
+    private LandmarkFilter() {
+    }
+
+    /**
+     * 解析过滤条件
+     * @param text 以空格分隔的条件，可为 null 或空串
+     * @return 过滤器
+     * @throws IllegalArgumentException 条件格式不正确时抛出
+     */
+    public static LandmarkFilter parse(String text) {
+        if (text == null || text.isBlank()) {
+            return NONE;
+        }
+
+        LandmarkFilter filter = new LandmarkFilter();
+        for (String token : text.trim().split("\\s+")) {
+            filter.add(token);
+        }
+        return filter;
+    }
+
+    /**
+     * 从搜索输入中拆出过滤条件，如 "村 grade:白级" -> ("村", grade:白级)。
+     * 只有已知字段开头的词才当作条件，其余部分按原样作为关键字。
+     * @throws IllegalArgumentException 条件格式不正确时抛出
+     */
+    public static Query parseQuery(String text) {
+        StringBuilder keyword = new StringBuilder();
+        LandmarkFilter filter = null;
+        for (String token : text.trim().split("\\s+")) {
+            if (isFilterToken(token)) {
+                if (filter == null) {
+                    filter = new LandmarkFilter();
+                }
+                filter.add(token);
+            } else {
+                if (keyword.length() > 0) {
+                    keyword.append(' ');
+                }
+                keyword.append(token);
+            }
+        }
+        return new Query(keyword.toString(), filter != null ? filter : NONE);
+    }
+
+    private static boolean isFilterToken(String token) {
+        int colon = token.indexOf(':');
+        if (colon <= 0) {
+            return false;
+        }
+        String field = token.substring(0, colon).toLowerCase(Locale.ROOT);
+        for (String known : FIELDS) {
+            if (known.equals(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String token) {
+        int colon = token.indexOf(':');
+        if (colon <= 0 || colon == token.length() - 1) {
+            throw new IllegalArgumentException("无法识别的过滤条件: " + token);
+        }
+        String field = token.substring(0, colon).toLowerCase(Locale.ROOT);
+        String value = token.substring(colon + 1);
+        boolean negated = value.startsWith("!");
+        if (negated) {
+            value = value.substring(1);
+        }
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("无法识别的过滤条件: " + token);
+        }
+
+        switch (field) {
+            case "grade":
+                (negated ? excludedGrades : grades).add(value);
+                break;
+            case "status":
+                (negated ? excludedStatuses : statuses).add(value);
+                break;
+            case "dataset":
+                String section = value.toLowerCase(Locale.ROOT);
+                if (!"zeroth".equals(section) && !"houtu".equals(section)) {
+                    throw new IllegalArgumentException("未知的数据集: " + value);
+                }
+                if (negated) {
+                    excludedDataset = section;
+                } else {
+                    dataset = section;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("未知的过滤字段: " + field);
+        }
+    }
+
+    // 只查询字典，不登记新取值：输错的取值不会留在全局字典中，数据里没有的取值就是空集合。
+    // 在过滤时才换算，解析之后才加载的分区中出现的取值也能匹配
+    private static BitSet codesOf(ValueDictionary dictionary, List<String> values) {
+        BitSet codes = new BitSet();
+        for (String value : values) {
+            codes.or(dictionary.lookupIgnoreCase(value));
+        }
+        return codes;
+    }
+
+    private static boolean containsIgnoreCase(List<String> values, String value) {
+        for (String candidate : values) {
+            if (candidate.equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否没有任何条件
+     */
+    public boolean isEmpty() {
+        return grades.isEmpty() && statuses.isEmpty() && excludedGrades.isEmpty() && excludedStatuses.isEmpty()
+            && dataset == null && excludedDataset == null;
+    }
+
+    /**
+     * 在分区的位图索引上求出满足条件的记录
+     * @return 满足条件的记录位图；没有任何条件时返回 null，表示全部记录
+     */
+    public BitSet select(LandmarkSection section) {
+        if (isEmpty()) {
+            return null;
+        }
+
+        BitSet result = new BitSet(section.size());
+        if ((dataset != null && !dataset.equals(section.getDataset())) || section.getDataset().equals(excludedDataset)) {
+            return result;
+        }
+        result.set(0, section.size());
+        if (!grades.isEmpty()) {
+            result.and(section.getGradeFacet().union(codesOf(ValueDictionary.GRADES, grades)));
+        }
+        if (!excludedGrades.isEmpty()) {
+            result.andNot(section.getGradeFacet().union(codesOf(ValueDictionary.GRADES, excludedGrades)));
+        }
+        if (!statuses.isEmpty()) {
+            result.and(section.getStatusFacet().union(codesOf(ValueDictionary.STATUSES, statuses)));
+        }
+        if (!excludedStatuses.isEmpty()) {
+            result.andNot(section.getStatusFacet().union(codesOf(ValueDictionary.STATUSES, excludedStatuses)));
+        }
+        return result;
+    }
+
+    /**
+     * 判断单个对象是否满足等级与状态条件（用于 API 返回的结果）
+     */
+    public boolean test(LynnLandmark landmark) {
+        String grade = landmark.getGrade();
+        String status = landmark.getStatus();
+        return (grades.isEmpty() || containsIgnoreCase(grades, grade)) && !containsIgnoreCase(excludedGrades, grade)
+            && (statuses.isEmpty() || containsIgnoreCase(statuses, status)) && !containsIgnoreCase(excludedStatuses, status);
+    }
+}
@@ -0,0 +1,402 @@
+package com.fletime.toriifind.data;
+
+import com.fletime.toriifind.index.BkTree;
+import com.fletime.toriifind.index.FacetIndex;
+import com.fletime.toriifind.index.IdIndex;
+import com.fletime.toriifind.index.NgramIndex;
+import com.fletime.toriifind.index.Pinyin;
+import com.fletime.toriifind.index.PinyinIndex;
+import com.fletime.toriifind.index.PrefixIndex;
+import com.fletime.toriifind.index.SpatialGrid;
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据集中的一个分区（零洲或后土）。
+ * 记录以列式存储，与其索引按下标一一对应。编号、空间与过滤索引在构造时建立；
+ * 名称与拼音的 n-gram 索引可以直接取自快照文件；每条记录的拼音与补全索引在第一次用到时才建立。
+ * 容错索引由 {@link #buildFuzzyIndex} 在后台建立，建好之前容错搜索不返回结果，不在客户端线程上建树。
+ */
+public class LandmarkSection {
+    // 容错搜索在客户端线程上的时间预算
+    private static final long FUZZY_BUDGET_NANOS = 2_000_000L;
+    
+    private final String dataset;
+    private final LandmarkStore store;
+    // 按下标在第一次用到时生成；PinyinIndex 不可变，并发时重复生成无害
+    private final PinyinIndex[] pinyin;
+    private final NgramIndex nameIndex;
+    private final NgramIndex pinyinIndex;
+    private final IdIndex idIndex;
+    private final SpatialGrid spatialGrid;
+    private final PrefixIndex idCompletion;
+    private final FacetIndex gradeFacet;
+    private final FacetIndex statusFacet;
+    private volatile BkTree fuzzyTree;
+    private volatile PrefixIndex nameCompletion;
+    
+    /**
+     * @param dataset 分区名（"zeroth" 或 "houtu"）
+     * @param store 列式数据
+     */
+    public LandmarkSection(String dataset, LandmarkStore store) {
+        this(dataset, store, TextIndexes.build(store));
+    }
+    
+    /**
+     * @param dataset 分区名（"zeroth" 或 "houtu"）
+     * @param store 列式数据
+     * @param text 为同一份数据建立（或从快照读取）的文本索引
+     */
+    public LandmarkSection(String dataset, LandmarkStore store, TextIndexes text) {
+        this.dataset = dataset;
+        this.store = store;
+        this.pinyin = text.pinyin != null ? text.pinyin : new PinyinIndex[store.size()];
+        this.nameIndex = text.names;
+        this.pinyinIndex = text.pinyinGrams;
+        
+        String[] ids = new String[store.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.getId(i);
+        }
+        this.idIndex = IdIndex.build(ids);
+        this.spatialGrid = buildSpatialGrid(store);
+        int[] positions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[i] = i;
+        }
+        this.idCompletion = PrefixIndex.build(ids, positions, ids.length);
+        
+        int[] gradeCodes = new int[store.size()];
+        int[] statusCodes = new int[store.size()];
+        for (int i = 0; i < store.size(); i++) {
+            gradeCodes[i] = store.getGradeCode(i);
+            statusCodes[i] = store.getStatusCode(i);
+        }
+        this.gradeFacet = FacetIndex.build(gradeCodes, store.size());
+        this.statusFacet = FacetIndex.build(statusCodes, store.size());
+    }
+    
+    /**
+     * 分区的文本索引：名称与拼音的 n-gram 倒排索引，以及名称中用到的汉字读音表。
+     * 建立时要对每个汉字查询 pinyin4j 并展开全部名称，是加载分区时最慢的部分，因此与列式数据一起写入快照文件，
+     * 见 {@link #write} 与 {@link #read}。
+     */
+    public static final class TextIndexes {
+        private final NgramIndex names;
+        private final NgramIndex pinyinGrams;
+        private final char[] hanzi;
+        private final String[][] readings;
+        // 建立索引时顺带生成的每条记录拼音，从快照读取时为 null
+        private final PinyinIndex[] pinyin;
+        
+        private TextIndexes(NgramIndex names, NgramIndex pinyinGrams, char[] hanzi, String[][] readings, PinyinIndex[] pinyin) {
+            this.names = names;
+            this.pinyinGrams = pinyinGrams;
+            this.hanzi = hanzi;
+            this.readings = readings;
+            this.pinyin = pinyin;
+        }
+        
+        /**
+         * 为列式数据建立文本索引
+         */
+        public static TextIndexes build(LandmarkStore store) {
+            String[] names = new String[store.size()];
+            PinyinIndex[] pinyin = new PinyinIndex[store.size()];
+            // 名称中出现过的汉字，CJK 基本区只有两万余字，用位图记录
+            BitSet used = new BitSet();
+            for (int i = 0; i < names.length; i++) {
+                names[i] = store.getName(i);
+                pinyin[i] = PinyinIndex.of(names[i]);
+                for (int k = 0; k < names[i].length(); k++) {
+                    char c = names[i].charAt(k);
+                    if (Pinyin.isHanzi(c)) {
+                        used.set(c);
+                    }
+                }
+            }
+            
+            char[] hanzi = new char[used.cardinality()];
+            String[][] readings = new String[hanzi.length][];
+            int count = 0;
+            for (int c = used.nextSetBit(0); c >= 0; c = used.nextSetBit(c + 1)) {
+                hanzi[count] = (char) c;
+                readings[count++] = Pinyin.readings((char) c);
+            }
+            return new TextIndexes(NgramIndex.build(names), NgramIndex.buildPinyin(pinyin), hanzi, readings, pinyin);
+        }
+        
+        /**
+         * 写出读音表与两个 n-gram 索引，格式与 {@link #read} 对应
+         */
+        public void write(DataOutputStream out) throws IOException {
+            out.writeInt(hanzi.length);
+            for (int i = 0; i < hanzi.length; i++) {
+                out.writeChar(hanzi[i]);
+                out.writeInt(readings[i].length);
+                for (String reading : readings[i]) {
+                    out.writeInt(reading.length());
+                    out.writeChars(reading);
+                }
+            }
+            names.write(out);
+            pinyinGrams.write(out);
+        }
+        
+        /**
+         * 从 buffer 的当前位置读取 {@link #write} 写出的文本索引，并把位置移到末尾。
+         * 读音表填入 {@link Pinyin} 的缓存，之后生成拼音时不再加载 pinyin4j 的字典；n-gram 索引直接引用 buffer 的内容。
+         * @throws IOException 数据不完整或格式不正确时抛出
+         */
+        public static TextIndexes read(ByteBuffer buffer) throws IOException {
+            try {
+                char[] hanzi = new char[buffer.getInt()];
+                String[][] readings = new String[hanzi.length][];
+                for (int i = 0; i < hanzi.length; i++) {
+                    hanzi[i] = buffer.getChar();
+                    readings[i] = new String[buffer.getInt()];
+                    for (int r = 0; r < readings[i].length; r++) {
+                        char[] chars = new char[buffer.getInt()];
+                        for (int k = 0; k < chars.length; k++) {
+                            chars[k] = buffer.getChar();
+                        }
+                        readings[i][r] = new String(chars);
+                    }
+                }
+                NgramIndex names = NgramIndex.read(buffer);
+                NgramIndex pinyinGrams = NgramIndex.read(buffer);
+                
+                for (int i = 0; i < hanzi.length; i++) {
+                    Pinyin.seed(hanzi[i], readings[i]);
+                }
+                return new TextIndexes(names, pinyinGrams, hanzi, readings, null);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                     | NegativeArraySizeException e) {
+                throw new IOException("快照数据不完整", e);
+            }
+        }
+    }
+    
+    /**
+     * 建立容错索引（词条为名称与默认读音全拼），已建立时直接返回。
+     * 要遍历全部记录，应在后台线程调用，{@link LandmarkDataset} 在分区建立后自动安排
+     */
+    public void buildFuzzyIndex() {
+        if (fuzzyTree != null) {
+            return;
+        }
+        synchronized (this) {
+            if (fuzzyTree == null) {
+                BkTree tree = new BkTree();
+                for (int i = 0; i < store.size(); i++) {
+                    tree.add(store.getName(i).toLowerCase(), i);
+                    tree.add(getPinyin(i).getFull(), i);
+                }
+                fuzzyTree = tree;
+            }
+        }
+    }
+    
+    // 补全词条：名称、默认读音全拼与首字母
+    private PrefixIndex nameCompletion() {
+        PrefixIndex index = nameCompletion;
+        if (index == null) {
+            synchronized (this) {
+                index = nameCompletion;
+                if (index == null) {
+                    String[] keys = new String[store.size() * 3];
+                    int[] values = new int[store.size() * 3];
+                    int count = 0;
+                    for (int i = 0; i < store.size(); i++) {
+                        keys[count] = store.getName(i);
+                        values[count++] = i;
+                        PinyinIndex spelling = getPinyin(i);
+                        if (!spelling.getFull().isEmpty()) {
+                            keys[count] = spelling.getFull();
+                            values[count++] = i;
+                            keys[count] = spelling.getInitials();
+                            values[count++] = i;
+                        }
+                    }
+                    nameCompletion = index = PrefixIndex.build(keys, values, count);
+                }
+            }
+        }
+        return index;
+    }
+    
+    // 只有坐标已知的记录进入空间索引
+    private static SpatialGrid buildSpatialGrid(LandmarkStore store) {
+        int[] ids = new int[store.size()];
+        double[] xs = new double[store.size()];
+        double[] zs = new double[store.size()];
+        int count = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.hasCoordinates(i)) {
+                xs[count] = store.getX(i);
+                zs[count] = store.getZ(i);
+                ids[count] = i;
+                count++;
+            }
+        }
+        return SpatialGrid.build(ids, xs, zs, count);
+    }
+    
+    /**
+     * 分区名（"zeroth" 或 "houtu"）
+     */
+    public String getDataset() { return dataset; }
+    
+    /**
+     * 列式存储的原始数据
+     */
+    public LandmarkStore getStore() { return store; }
+    
+    /**
+     * 生成全部记录的对象列表（每次调用都会重新生成）
+     */
+    public List<LynnLandmark> getLandmarks() {
+        List<LynnLandmark> landmarks = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) {
+            landmarks.add(store.materialize(i));
+        }
+        return landmarks;
+    }
+    
+    public int size() { return store.size(); }
+    
+    /**
+     * 生成第 index 条记录的对象，仅在返回结果时使用
+     */
+    public LynnLandmark get(int index) { return store.materialize(index); }
+    
+    public String getName(int index) { return store.getName(index); }
+    
+    public String getId(int index) { return store.getId(index); }
+    
+    /**
+     * 第 index 条记录名称的拼音索引
+     */
+    public PinyinIndex getPinyin(int index) {
+        PinyinIndex result = pinyin[index];
+        if (result == null) {
+            pinyin[index] = result = PinyinIndex.of(store.getName(index));
+        }
+        return result;
+    }
+    
+    /**
+     * 等级位图索引（按 {@link ValueDictionary#GRADES} 编码）
+     */
+    public FacetIndex getGradeFacet() { return gradeFacet; }
+    
+    /**
+     * 状态位图索引（按 {@link ValueDictionary#STATUSES} 编码）
+     */
+    public FacetIndex getStatusFacet() { return statusFacet; }
+    
+    /**
+     * 查找名称包含关键字的记录下标（升序，只读）
+     */
+    public int[] searchName(String keyword) {
+        return nameIndex.search(keyword, store::getName);
+    }
+    
+    /**
+     * 查找拼音匹配关键字（全拼子串或音节前缀缩写，任意读音）的记录下标，升序
+     * @param lowercaseKeyword 小写字母关键字
+     */
+    public int[] searchPinyin(String lowercaseKeyword) {
+        int[] candidates = pinyinIndex.candidates(lowercaseKeyword);
+        int[] verified = new int[candidates.length];
+        int count = 0;
+        for (int index : candidates) {
+            if (getPinyin(index).matches(lowercaseKeyword)) {
+                verified[count++] = index;
+            }
+        }
+        return Arrays.copyOf(verified, count);
+    }
+    
+    /**
+     * 名称补全：名称、全拼或首字母以 prefix 开头的记录
+     */
+    public int[] completeName(String prefix, int limit) {
+        return nameCompletion().search(prefix, limit);
+    }
+    
+    /**
+     * 编号补全：编号以 prefix 开头的记录
+     */
+    public int[] completeId(String prefix, int limit) {
+        return idCompletion.search(prefix, limit);
+    }
+    
+    /**
+     * 按编号查询（精确、同数字、前缀或区间），结果按编号数字顺序排列
+     * @param query 查询串
+     * @return 命中记录下标；索引无法回答时返回 null
+     */
+    public int[] searchId(String query) {
+        return idIndex.lookup(query);
+    }
+    
+    /**
+     * 容错搜索：名称或全拼与关键字相差 1~2 个编辑操作
+     * @param keyword 关键字
+     * @return 命中记录下标 -> 编辑距离；关键字太短或容错索引尚未建好时为空
+     */
+    public Map<Integer, Integer> searchFuzzy(String keyword) {
+        String query = keyword.toLowerCase();
+        int maxDistance = maxEditsFor(query);
+        BkTree tree = fuzzyTree;
+        if (maxDistance == 0 || tree == null) {
+            return Map.of();
+        }
+        return tree.search(query, maxDistance, FUZZY_BUDGET_NANOS);
+    }
+    
+    /**
+     * 离 (x, z) 最近的 k 条有坐标的记录，按水平距离从近到远排列
+     */
+    public List<SpatialGrid.Hit> searchNearest(double x, double z, int k) {
+        return spatialGrid.nearest(x, z, k);
+    }
+    
+    /**
+     * 以 (x, z) 为圆心、radius 为半径的圆内满足过滤条件的记录，保留最近的 limit 条
+     */
+    public SpatialGrid.Result searchWithin(double x, double z, double radius, LandmarkFilter filter, int limit) {
+        BitSet allowed = filter.select(this);
+        return spatialGrid.within(x, z, radius, index -> allowed == null || allowed.get(index), limit);
+    }
+    
+    /**
+     * 矩形区域内满足过滤条件的记录，按到 (x, z) 的距离保留最近的 limit 条
+     */
+    public SpatialGrid.Result searchBox(double x1, double z1, double x2, double z2,
+                                        double x, double z, LandmarkFilter filter, int limit) {
+        BitSet allowed = filter.select(this);
+        return spatialGrid.box(x1, z1, x2, z2, x, z, index -> allowed == null || allowed.get(index), limit);
+    }
+    
+    // 汉字信息量大，两三个字就只允许错一个；拼音较长，可以多容忍一个
+    private static int maxEditsFor(String query) {
+        int length = query.length();
+        boolean latin = query.chars().allMatch(c -> c < 0x80);
+        if (latin) {
+            return length < 4 ? 0 : length < 8 ? 1 : 2;
+        }
+        return length < 2 ? 0 : length < 5 ? 1 : 2;
+    }
+}
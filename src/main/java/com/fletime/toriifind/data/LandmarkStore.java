@@ -0,0 +1,365 @@
+package com.fletime.toriifind.data;
+
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 列式存储的地标数据：每个字段一列，记录下标即数组下标。
+ * 编号与名称以 UTF-8 字节按偏移存放在一整块缓冲区中，读取时才解码；等级与状态按全局共享的字典编码为整数，
+ * 坐标为 double 列并用位图标记是否已知。
+ * 查询时直接读取列，只有返回结果时才生成 LynnLandmark 对象。
+ * 字符串列与坐标列可以直接由内存映射的快照文件支撑，见 {@link #write} 与 {@link #read}。
+ */
+public class LandmarkStore {
+    private static final String UNKNOWN = "Unknown";
+
+    private final StringColumn ids;
+    private final StringColumn names;
+    private final int[] gradeCodes;
+    private final int[] statusCodes;
+    private final DoubleBuffer xs;
+    private final DoubleBuffer ys;
+    private final DoubleBuffer zs;
+    private final BitSet coordinatesKnown;
+
+    private LandmarkStore(Builder builder) {
+        int size = builder.size;
+        this.ids = builder.ids.build();
+        this.names = builder.names.build();
+        this.gradeCodes = Arrays.copyOf(builder.gradeCodes, size);
+        this.statusCodes = Arrays.copyOf(builder.statusCodes, size);
+        this.xs = DoubleBuffer.wrap(Arrays.copyOf(builder.xs, size));
+        this.ys = DoubleBuffer.wrap(Arrays.copyOf(builder.ys, size));
+        this.zs = DoubleBuffer.wrap(Arrays.copyOf(builder.zs, size));
+        this.coordinatesKnown = (BitSet) builder.coordinatesKnown.clone();
+    }
+
+    private LandmarkStore(StringColumn ids, StringColumn names, int[] gradeCodes, int[] statusCodes,
+                          DoubleBuffer xs, DoubleBuffer ys, DoubleBuffer zs, BitSet coordinatesKnown) {
+        this.ids = ids;
+        this.names = names;
+        this.gradeCodes = gradeCodes;
+        this.statusCodes = statusCodes;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.coordinatesKnown = coordinatesKnown;
+    }
+
+    public int size() { return gradeCodes.length; }
+
+    public String getId(int index) { return ids.get(index); }
+
+    public String getName(int index) { return names.get(index); }
+
+    /**
+     * 等级编码，见 {@link ValueDictionary#GRADES}
+     */
+    public int getGradeCode(int index) { return gradeCodes[index]; }
+
+    public String getGrade(int index) { return ValueDictionary.GRADES.decode(gradeCodes[index]); }
+
+    /**
+     * 状态编码，见 {@link ValueDictionary#STATUSES}
+     */
+    public int getStatusCode(int index) { return statusCodes[index]; }
+
+    public String getStatus(int index) { return ValueDictionary.STATUSES.decode(statusCodes[index]); }
+
+    /**
+     * 坐标是否已知（数据中为 "Unknown" 或无法解析时为 false）
+     */
+    public boolean hasCoordinates(int index) { return coordinatesKnown.get(index); }
+
+    public double getX(int index) { return xs.get(index); }
+
+    public double getY(int index) { return ys.get(index); }
+
+    public double getZ(int index) { return zs.get(index); }
+
+    /**
+     * 生成第 index 条记录的对象，仅在返回结果时使用
+     */
+    public LynnLandmark materialize(int index) {
+        LynnLandmark.Coordinates coordinates = coordinatesKnown.get(index)
+            ? new LynnLandmark.Coordinates(formatNumber(getX(index)), formatNumber(getY(index)), formatNumber(getZ(index)))
+            : new LynnLandmark.Coordinates(UNKNOWN, UNKNOWN, UNKNOWN);
+        return new LynnLandmark(getId(index), getName(index), gradeCodes[index], statusCodes[index], coordinates);
+    }
+
+    /**
+     * 按大端序写出全部列，格式与 {@link #read} 对应。
+     * 等级与状态的字典编码只在本次运行内有效，因此连同本列用到的取值一起写出，读取时重新编码。
+     */
+    public void write(DataOutputStream out) throws IOException {
+        int size = size();
+        out.writeInt(size);
+        writeCodes(out, ValueDictionary.GRADES, gradeCodes);
+        writeCodes(out, ValueDictionary.STATUSES, statusCodes);
+
+        long[] words = coordinatesKnown.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        for (DoubleBuffer column : new DoubleBuffer[] {xs, ys, zs}) {
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(column.get(i));
+            }
+        }
+        ids.write(out);
+        names.write(out);
+    }
+
+    /**
+     * 从 buffer 的当前位置读取 {@link #write} 写出的列，并把位置移到末尾。
+     * 字符串列与坐标列直接引用 buffer 的内容，不做复制；buffer 为内存映射时由页缓存支撑。
+     * @throws IOException 数据不完整或格式不正确时抛出
+     */
+    public static LandmarkStore read(ByteBuffer buffer) throws IOException {
+        try {
+            int size = buffer.getInt();
+            int[] gradeCodes = readCodes(buffer, ValueDictionary.GRADES, size);
+            int[] statusCodes = readCodes(buffer, ValueDictionary.STATUSES, size);
+
+            long[] words = new long[buffer.getInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = buffer.getLong();
+            }
+            DoubleBuffer xs = slice(buffer, size * Double.BYTES).asDoubleBuffer();
+            DoubleBuffer ys = slice(buffer, size * Double.BYTES).asDoubleBuffer();
+            DoubleBuffer zs = slice(buffer, size * Double.BYTES).asDoubleBuffer();
+            StringColumn ids = StringColumn.read(buffer, size);
+            StringColumn names = StringColumn.read(buffer, size);
+            return new LandmarkStore(ids, names, gradeCodes, statusCodes, xs, ys, zs, BitSet.valueOf(words));
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("快照数据不完整", e);
+        }
+    }
+
+    private static void writeCodes(DataOutputStream out, ValueDictionary dictionary, int[] codes) throws IOException {
+        // 全局编码 -> 本列内的序号
+        List<Integer> used = new ArrayList<>();
+        int[] local = new int[0];
+        for (int code : codes) {
+            if (code >= local.length) {
+                int from = local.length;
+                local = Arrays.copyOf(local, code + 1);
+                Arrays.fill(local, from, local.length, -1);
+            }
+            if (local[code] < 0) {
+                local[code] = used.size();
+                used.add(code);
+            }
+        }
+        out.writeInt(used.size());
+        for (int code : used) {
+            String value = dictionary.decode(code);
+            out.writeInt(value.length());
+            out.writeChars(value);
+        }
+        for (int code : codes) {
+            out.writeInt(local[code]);
+        }
+    }
+
+    private static int[] readCodes(ByteBuffer buffer, ValueDictionary dictionary, int size) {
+        int[] global = new int[buffer.getInt()];
+        for (int i = 0; i < global.length; i++) {
+            char[] chars = new char[buffer.getInt()];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = buffer.getChar();
+            }
+            global[i] = dictionary.encode(new String(chars));
+        }
+        int[] codes = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = global[buffer.getInt()];
+        }
+        return codes;
+    }
+
+    // 切出当前位置起 length 字节的视图，并跳过这段内容
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer view = buffer.slice();
+        view.limit(length);
+        buffer.position(buffer.position() + length);
+        return view;
+    }
+
+    // 整数坐标不带小数点，与原始数据的写法一致
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * 按偏移索引的字符串列：所有字符串的 UTF-8 字节首尾相接存放，读取时再切出并解码
+     */
+    private static final class StringColumn {
+        private final ByteBuffer bytes;
+        private final IntBuffer offsets;
+
+        StringColumn(ByteBuffer bytes, IntBuffer offsets) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+        }
+
+        String get(int index) {
+            int start = offsets.get(index);
+            int length = offsets.get(index + 1) - start;
+            if (bytes.hasArray()) {
+                return new String(bytes.array(), bytes.arrayOffset() + start, length, StandardCharsets.UTF_8);
+            }
+            byte[] value = new byte[length];
+            bytes.get(start, value);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            int size = offsets.limit() - 1;
+            int length = offsets.get(size);
+            out.writeInt(length);
+            for (int i = 0; i <= size; i++) {
+                out.writeInt(offsets.get(i));
+            }
+            if (bytes.hasArray()) {
+                out.write(bytes.array(), bytes.arrayOffset(), length);
+            } else {
+                byte[] all = new byte[length];
+                bytes.get(0, all);
+                out.write(all);
+            }
+        }
+
+        static StringColumn read(ByteBuffer buffer, int size) {
+            int length = buffer.getInt();
+            IntBuffer offsets = slice(buffer, (size + 1) * Integer.BYTES).asIntBuffer();
+            ByteBuffer bytes = slice(buffer, length);
+            if (offsets.get(size) != length) {
+                throw new IllegalArgumentException("字符串列长度不一致");
+            }
+            return new StringColumn(bytes, offsets);
+        }
+
+        static final class Builder {
+            private byte[] bytes = new byte[512];
+            private int[] offsets = new int[17];
+            private int count;
+
+            void add(String value) {
+                add(ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)));
+            }
+
+            // 复制 utf8 中 position 到 limit 的字节，不改变其位置
+            void add(ByteBuffer utf8) {
+                int start = offsets[count];
+                int length = utf8.remaining();
+                if (start + length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + length));
+                }
+                utf8.get(utf8.position(), bytes, start, length);
+                if (count + 2 > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[++count] = start + length;
+            }
+
+            StringColumn build() {
+                return new StringColumn(ByteBuffer.wrap(Arrays.copyOf(bytes, offsets[count])),
+                    IntBuffer.wrap(Arrays.copyOf(offsets, count + 1)));
+            }
+        }
+    }
+
+    /**
+     * 逐条追加记录，最后一次性生成列
+     */
+    public static class Builder {
+        private final StringColumn.Builder ids = new StringColumn.Builder();
+        private final StringColumn.Builder names = new StringColumn.Builder();
+        private int[] gradeCodes = new int[16];
+        private int[] statusCodes = new int[16];
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private double[] zs = new double[16];
+        private final BitSet coordinatesKnown = new BitSet();
+        private int size;
+
+        /**
+         * 追加一条记录
+         * @param x 坐标字符串，"Unknown" 或 null 表示未知
+         */
+        public Builder add(String id, String name, String grade, String status, String x, String y, String z) {
+            double px = Double.NaN, py = Double.NaN, pz = Double.NaN;
+            try {
+                if (x != null && y != null && z != null && !UNKNOWN.equals(x) && !UNKNOWN.equals(y) && !UNKNOWN.equals(z)) {
+                    px = Double.parseDouble(x);
+                    py = Double.parseDouble(y);
+                    pz = Double.parseDouble(z);
+                }
+            } catch (NumberFormatException e) {
+                // 坐标格式不正确，按未知处理
+                px = Double.NaN;
+            }
+            ids.add(id);
+            names.add(name);
+            return append(grade, status, px, py, pz);
+        }
+
+        /**
+         * 追加一条记录，编号与名称直接以 UTF-8 字节给出，不经过字符串
+         * @param id 编号的 UTF-8 字节（position 到 limit），只复制不修改
+         * @param x 坐标，任一分量为 NaN 表示未知
+         */
+        public Builder add(ByteBuffer id, ByteBuffer name, String grade, String status, double x, double y, double z) {
+            ids.add(id);
+            names.add(name);
+            return append(grade, status, x, y, z);
+        }
+
+        private Builder append(String grade, String status, double x, double y, double z) {
+            if (size == gradeCodes.length) {
+                int capacity = size * 2;
+                gradeCodes = Arrays.copyOf(gradeCodes, capacity);
+                statusCodes = Arrays.copyOf(statusCodes, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+            }
+
+            gradeCodes[size] = ValueDictionary.GRADES.encode(grade);
+            statusCodes[size] = ValueDictionary.STATUSES.encode(status);
+            if (!Double.isNaN(x) && !Double.isNaN(y) && !Double.isNaN(z)) {
+                xs[size] = x;
+                ys[size] = y;
+                zs[size] = z;
+                coordinatesKnown.set(size);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * 已追加的记录数
+         */
+        public int size() { return size; }
+
+        public LandmarkStore build() {
+            return new LandmarkStore(this);
+        }
+    }
+}
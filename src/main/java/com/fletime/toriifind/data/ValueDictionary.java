@@ -0,0 +1,81 @@
+package com.fletime.toriifind.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 取值较少的字段（等级、状态）的字典编码。
+ * 字典全局共享且只增不减：同一个值在所有数据集、所有次重新加载中编码都相同，
+ * 内存中每个值只保留一个字符串实例，比较时直接比较整数编码。
+ */
+public final class ValueDictionary {
+    /**
+     * 等级字典，如 白级、标居、赤居
+     */
+    public static final ValueDictionary GRADES = new ValueDictionary();
+
+    /**
+     * 状态字典，如 Normal
+     */
+    public static final ValueDictionary STATUSES = new ValueDictionary();
+
+    /**
+     * 正常状态的编码
+     */
+    public static final int STATUS_NORMAL = STATUSES.encode("Normal");
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[8];
+    private int size;
+
+    private ValueDictionary() {
+    }
+
+    /**
+     * 取值的编码，首次出现时分配新编码
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            // 先发布取值数组，再发布编码，保证拿到编码的线程一定能解码
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * 编码对应的取值
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * 忽略大小写与 value 相同的所有取值的编码
+     */
+    public BitSet lookupIgnoreCase(String value) {
+        BitSet result = new BitSet();
+        String[] current = values;
+        for (int code = 0; code < current.length && current[code] != null; code++) {
+            if (current[code].equalsIgnoreCase(value)) {
+                result.set(code);
+            }
+        }
+        return result;
+    }
+}
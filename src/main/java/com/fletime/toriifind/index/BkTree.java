@@ -0,0 +1,154 @@
+package com.fletime.toriifind.index;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 编辑距离 BK 树，用于容错（错别字/拼写错误）搜索。
+ * 利用三角不等式，每个节点只需访问距离落在 [d-k, d+k] 内的子树，
+ * 不必与所有词条逐一计算编辑距离。
+ */
+public final class BkTree {
+    
+    private static final class Node {
+        final String term;
+        int[] ids = new int[1];
+        int idCount;
+        int[] childDistances = new int[0];
+        Node[] children = new Node[0];
+        
+        Node(String term) {
+            this.term = term;
+        }
+        
+        void addId(int id) {
+            if (idCount > 0 && ids[idCount - 1] == id) {
+                return;
+            }
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+        }
+        
+        Node child(int distance) {
+            for (int i = 0; i < childDistances.length; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+        
+        void addChild(int distance, Node node) {
+            int n = childDistances.length;
+            childDistances = Arrays.copyOf(childDistances, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            childDistances[n] = distance;
+            children[n] = node;
+        }
+    }
+    
+    private Node root;
+    
+    /**
+     * 插入词条，同一词条可对应多条记录
+     * @param term 词条（名称或拼音）
+     * @param id 记录下标
+     */
+    public void add(String term, int id) {
+        if (term.isEmpty()) {
+            return;
+        }
+        if (root == null) {
+            root = new Node(term);
+            root.addId(id);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(term, node.term);
+            if (distance == 0) {
+                node.addId(id);
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                Node created = new Node(term);
+                created.addId(id);
+                node.addChild(distance, created);
+                return;
+            }
+            node = child;
+        }
+    }
+    
+    /**
+     * 查找与查询串编辑距离不超过 maxDistance 的词条
+     * @param query 查询串
+     * @param maxDistance 最大编辑距离
+     * @param budgetNanos 时间预算，超时后返回已找到的部分结果
+     * @return 命中记录下标 -> 最小编辑距离
+     */
+    public Map<Integer, Integer> search(String query, int maxDistance, long budgetNanos) {
+        Map<Integer, Integer> result = new HashMap<>();
+        if (root == null || query.isEmpty()) {
+            return result;
+        }
+        
+        long deadline = System.nanoTime() + budgetNanos;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        int visited = 0;
+        
+        while (!stack.isEmpty()) {
+            // 每访问若干节点检查一次时间，避免频繁调用 nanoTime
+            if ((++visited & 31) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            Node node = stack.pop();
+            int distance = distance(query, node.term);
+            if (distance <= maxDistance) {
+                for (int i = 0; i < node.idCount; i++) {
+                    result.merge(node.ids[i], distance, Math::min);
+                }
+            }
+            for (int i = 0; i < node.childDistances.length; i++) {
+                int childDistance = node.childDistances[i];
+                if (childDistance >= distance - maxDistance && childDistance <= distance + maxDistance) {
+                    stack.push(node.children[i]);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Levenshtein 编辑距离（两行滚动数组）
+     */
+    public static int distance(String a, String b) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,78 @@
+package com.fletime.toriifind.index;
+
+import java.util.BitSet;
+
+/**
+ * 取值较少的字段的位图索引：每个取值编码一个位图，记录下标即位号。
+ * 过滤时对位图做与/或运算，分面计数即位图的基数。
+ * 每个分区只有数千条记录，未压缩的位图也只有几百字节，因此直接使用 {@link BitSet}，不为压缩位图引入额外依赖。
+ */
+public final class FacetIndex {
+    private static final BitSet EMPTY = new BitSet();
+
+    private final BitSet[] bitmaps;
+
+    private FacetIndex(BitSet[] bitmaps) {
+        this.bitmaps = bitmaps;
+    }
+
+    /**
+     * 按编码列构建
+     * @param codes 每条记录的取值编码
+     * @param size 记录数
+     */
+    public static FacetIndex build(int[] codes, int size) {
+        int maxCode = -1;
+        for (int i = 0; i < size; i++) {
+            maxCode = Math.max(maxCode, codes[i]);
+        }
+        BitSet[] bitmaps = new BitSet[maxCode + 1];
+        for (int i = 0; i < size; i++) {
+            if (bitmaps[codes[i]] == null) {
+                // 位图只增长到该取值最后一条记录为止
+                bitmaps[codes[i]] = new BitSet();
+            }
+            bitmaps[codes[i]].set(i);
+        }
+        return new FacetIndex(bitmaps);
+    }
+
+    /**
+     * 取值编码为 code 的记录（只读）
+     */
+    public BitSet get(int code) {
+        return code < bitmaps.length && bitmaps[code] != null ? bitmaps[code] : EMPTY;
+    }
+
+    /**
+     * 取值编码属于 codes 的记录（新位图）
+     */
+    public BitSet union(BitSet codes) {
+        BitSet result = new BitSet();
+        for (int code = codes.nextSetBit(0); code >= 0 && code < bitmaps.length; code = codes.nextSetBit(code + 1)) {
+            if (bitmaps[code] != null) {
+                result.or(bitmaps[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 各取值在 within 中的记录数；within 为 null 时统计全部记录
+     * @return 下标为取值编码的计数数组
+     */
+    public int[] counts(BitSet within) {
+        int[] counts = new int[bitmaps.length];
+        for (int code = 0; code < bitmaps.length; code++) {
+            if (bitmaps[code] == null) continue;
+            if (within == null) {
+                counts[code] = bitmaps[code].cardinality();
+            } else {
+                BitSet intersection = (BitSet) bitmaps[code].clone();
+                intersection.and(within);
+                counts[code] = intersection.cardinality();
+            }
+        }
+        return counts;
+    }
+}
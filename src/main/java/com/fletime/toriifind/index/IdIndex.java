@@ -0,0 +1,168 @@
+package com.fletime.toriifind.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 编号索引：精确匹配用哈希表，前缀/区间查询用按 (前缀, 数字) 排序的数组。
+ * 编号拆分为前缀和末尾数字，例如 "C-01" -> ("C-", 1)，"120" -> ("", 120)，
+ * 这样结果按数字大小而不是字符串顺序排列。
+ */
+public final class IdIndex {
+    private static final long NO_NUMBER = -1;
+    private static final int[] EMPTY = new int[0];
+
+    // 区间查询："100-200"、"C-1-5"
+    private static final Pattern RANGE = Pattern.compile("^(.*?)(\\d{1,18})-(\\d{1,18})$");
+
+    private final Map<String, int[]> exact;
+    private final int[] order;
+    private final String[] prefixes;
+    private final long[] numbers;
+
+    private IdIndex(Map<String, int[]> exact, int[] order, String[] prefixes, long[] numbers) {
+        this.exact = exact;
+        this.order = order;
+        this.prefixes = prefixes;
+        this.numbers = numbers;
+    }
+
+    /**
+     * 为一组编号构建索引，记录下标即数组下标
+     */
+    public static IdIndex build(String[] ids) {
+        Map<String, int[]> exact = new HashMap<>(ids.length * 4 / 3 + 1);
+        String[] keyPrefix = new String[ids.length];
+        long[] keyNumber = new long[ids.length];
+
+        for (int i = 0; i < ids.length; i++) {
+            exact.merge(ids[i], new int[]{i}, IdIndex::concat);
+            int split = numberStart(ids[i]);
+            keyPrefix[i] = ids[i].substring(0, split);
+            keyNumber[i] = parseNumber(ids[i], split);
+        }
+
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = i;
+        }
+        // 稳定排序，键相同时保持文件顺序
+        Arrays.sort(boxed, Comparator.<Integer, String>comparing(i -> keyPrefix[i])
+            .thenComparingLong(i -> keyNumber[i]));
+
+        int[] order = new int[ids.length];
+        String[] prefixes = new String[ids.length];
+        long[] numbers = new long[ids.length];
+        for (int p = 0; p < ids.length; p++) {
+            order[p] = boxed[p];
+            prefixes[p] = keyPrefix[order[p]];
+            numbers[p] = keyNumber[order[p]];
+        }
+        return new IdIndex(exact, order, prefixes, numbers);
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] merged = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, merged, a.length, b.length);
+        return merged;
+    }
+
+    // 末尾连续数字的起始位置
+    private static int numberStart(String id) {
+        int start = id.length();
+        while (start > 0 && Character.isDigit(id.charAt(start - 1))) {
+            start--;
+        }
+        return start;
+    }
+
+    private static long parseNumber(String id, int start) {
+        if (start == id.length() || id.length() - start > 18) {
+            return NO_NUMBER;
+        }
+        return Long.parseLong(id.substring(start));
+    }
+
+    /**
+     * 按编号查询，依次尝试：区间、精确匹配、同前缀同数字、前缀
+     * @param query 查询串，如 "12"、"C-01"、"C-"、"100-200"
+     * @return 命中记录下标，按编号数字顺序排列；无法用索引回答时返回 null
+     */
+    public int[] lookup(String query) {
+        Matcher matcher = RANGE.matcher(query);
+        if (matcher.matches()) {
+            long from = Long.parseLong(matcher.group(2));
+            long to = Long.parseLong(matcher.group(3));
+            return range(matcher.group(1), Math.min(from, to), Math.max(from, to));
+        }
+
+        int[] hit = exact.get(query);
+        if (hit != null) {
+            return hit;
+        }
+
+        int split = numberStart(query);
+        long number = parseNumber(query, split);
+        if (number != NO_NUMBER) {
+            // "C-1" 与 "C-01" 视为同一编号
+            int[] sameNumber = range(query.substring(0, split), number, number);
+            return sameNumber.length > 0 ? sameNumber : null;
+        }
+
+        int[] byPrefix = prefix(query);
+        return byPrefix.length > 0 ? byPrefix : null;
+    }
+
+    /**
+     * 精确匹配
+     */
+    public int[] exact(String id) {
+        return exact.getOrDefault(id, EMPTY);
+    }
+
+    /**
+     * 前缀相同且数字在 [from, to] 内的记录
+     */
+    public int[] range(String prefix, long from, long to) {
+        int low = lowerBound(prefix, from);
+        // 数字最多 18 位，to + 1 不会溢出
+        int high = lowerBound(prefix, to + 1);
+        return slice(low, high);
+    }
+
+    /**
+     * 编号前缀以 prefix 开头的记录（如 "C-"）
+     */
+    public int[] prefix(String prefix) {
+        int low = lowerBound(prefix, Long.MIN_VALUE);
+        int high = lowerBound(prefix + Character.MAX_VALUE, Long.MIN_VALUE);
+        return slice(low, high);
+    }
+
+    // 第一个 (前缀, 数字) >= (prefix, number) 的位置
+    private int lowerBound(String prefix, long number) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = prefixes[mid].compareTo(prefix);
+            if (cmp == 0) {
+                cmp = Long.compare(numbers[mid], number);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int[] slice(int low, int high) {
+        return high > low ? Arrays.copyOfRange(order, low, high) : EMPTY;
+    }
+}
@@ -0,0 +1,284 @@
+package com.fletime.toriifind.index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * 字符 n-gram 倒排索引（单字 + 双字）。
+ * 子串查询先取关键字所有双字的倒排表求交集得到候选，再由调用方校验，
+ * 查询开销只与命中数量相关，与数据集大小无关。
+ * 名称索引直接取名称的 n-gram；拼音索引取拼音格上所有可能相邻的字母对。
+ * 键按升序排列，倒排表首尾相接存放，可以写入快照文件并直接由映射的缓冲区支撑，见 {@link #write} 与 {@link #read}。
+ */
+public final class NgramIndex {
+    private static final int[] EMPTY = new int[0];
+    
+    // keys[k] 的倒排表为 postings[starts[k], starts[k + 1])
+    private final LongBuffer keys;
+    private final IntBuffer starts;
+    private final IntBuffer postings;
+    private final int size;
+    
+    private NgramIndex(LongBuffer keys, IntBuffer starts, IntBuffer postings, int size) {
+        this.keys = keys;
+        this.starts = starts;
+        this.postings = postings;
+        this.size = size;
+    }
+    
+    // 单字的键只占低 16 位，双字的两个字符各占 16 位并以第 32 位标记，不同的 n-gram 键一定不同
+    static long unigram(char c) {
+        return c;
+    }
+    
+    static long bigram(char first, char second) {
+        return 1L << 32 | (long) first << 16 | second;
+    }
+    
+    // 构建期使用的可增长倒排表
+    private static final class Posting {
+        int[] ids = new int[4];
+        int count;
+        
+        void add(int id) {
+            // 同一名称中重复出现的 n-gram 只记一次
+            if (count > 0 && ids[count - 1] == id) {
+                return;
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+    }
+    
+    // 构建器：按记录下标递增的顺序逐条加入 n-gram
+    private static final class Builder {
+        private final Map<Long, Posting> building = new HashMap<>();
+        private int id;
+        
+        void add(long gram) {
+            building.computeIfAbsent(gram, key -> new Posting()).add(id);
+        }
+        
+        NgramIndex build(int size) {
+            long[] keys = new long[building.size()];
+            int k = 0;
+            int total = 0;
+            for (Map.Entry<Long, Posting> entry : building.entrySet()) {
+                keys[k++] = entry.getKey();
+                total += entry.getValue().count;
+            }
+            Arrays.sort(keys);
+            
+            // 按键的顺序首尾相接，去掉扩容留下的空位
+            int[] starts = new int[keys.length + 1];
+            int[] postings = new int[total];
+            for (k = 0; k < keys.length; k++) {
+                Posting posting = building.get(keys[k]);
+                System.arraycopy(posting.ids, 0, postings, starts[k], posting.count);
+                starts[k + 1] = starts[k] + posting.count;
+            }
+            return new NgramIndex(LongBuffer.wrap(keys), IntBuffer.wrap(starts), IntBuffer.wrap(postings), size);
+        }
+    }
+    
+    /**
+     * 为一组名称构建倒排索引，记录下标即数组下标
+     */
+    public static NgramIndex build(String[] names) {
+        Builder builder = new Builder();
+        for (builder.id = 0; builder.id < names.length; builder.id++) {
+            String name = names[builder.id];
+            for (int i = 0; i < name.length(); i++) {
+                builder.add(unigram(name.charAt(i)));
+                if (i + 1 < name.length()) {
+                    builder.add(bigram(name.charAt(i), name.charAt(i + 1)));
+                }
+            }
+        }
+        return builder.build(names.length);
+    }
+    
+    /**
+     * 为一组名称的拼音格构建倒排索引。
+     * 收录格上所有可能被查询连续输入的字母对，任何能在格上匹配的查询，
+     * 其相邻字母对都在索引中，候选集合不会漏掉记录
+     */
+    public static NgramIndex buildPinyin(PinyinIndex[] pinyin) {
+        Builder builder = new Builder();
+        LongConsumer add = builder::add;
+        for (builder.id = 0; builder.id < pinyin.length; builder.id++) {
+            pinyin[builder.id].getLattice().forEachGram(add);
+        }
+        return builder.build(pinyin.length);
+    }
+    
+    /**
+     * 查找名称包含关键字的记录
+     * @param keyword 关键字（区分大小写）
+     * @param nameOf 按下标取名称，用于最终校验
+     * @return 命中记录的下标，升序
+     */
+    public int[] search(String keyword, IntFunction<String> nameOf) {
+        // 双字都出现不代表连续出现；倒排表只是候选，一律用名称校验
+        return verify(candidates(keyword), keyword, nameOf);
+    }
+    
+    /**
+     * 可能包含关键字的候选记录（关键字的每个双字都出现过），需要调用方校验
+     * @param keyword 关键字（区分大小写）
+     * @return 候选记录的下标，升序
+     */
+    public int[] candidates(String keyword) {
+        if (keyword.isEmpty()) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        if (keyword.length() == 1) {
+            IntBuffer list = posting(unigram(keyword.charAt(0)));
+            return list != null ? toArray(list) : EMPTY;
+        }
+        
+        List<IntBuffer> lists = new ArrayList<>(keyword.length() - 1);
+        for (int i = 0; i + 1 < keyword.length(); i++) {
+            IntBuffer list = posting(bigram(keyword.charAt(i), keyword.charAt(i + 1)));
+            if (list == null) {
+                return EMPTY;
+            }
+            lists.add(list);
+        }
+        
+        // 从最短的倒排表开始求交集
+        lists.sort(Comparator.comparingInt(IntBuffer::limit));
+        int[] candidates = toArray(lists.get(0));
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+        return candidates;
+    }
+    
+    // 键的倒排表视图，没有时为 null
+    private IntBuffer posting(long key) {
+        int low = 0;
+        int high = keys.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = keys.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                int start = starts.get(mid);
+                return postings.slice(start, starts.get(mid + 1) - start);
+            }
+        }
+        return null;
+    }
+    
+    private static int[] toArray(IntBuffer list) {
+        int[] result = new int[list.limit()];
+        list.get(0, result);
+        return result;
+    }
+    
+    /**
+     * 写出索引，格式与 {@link #read} 对应
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(keys.limit());
+        for (int k = 0; k < keys.limit(); k++) {
+            out.writeLong(keys.get(k));
+        }
+        for (int k = 0; k <= keys.limit(); k++) {
+            out.writeInt(starts.get(k));
+        }
+        for (int i = 0; i < postings.limit(); i++) {
+            out.writeInt(postings.get(i));
+        }
+    }
+    
+    /**
+     * 从 buffer 的当前位置读取 {@link #write} 写出的索引，并把位置移到末尾。
+     * 键与倒排表直接引用 buffer 的内容，不做复制。
+     * @throws IOException 数据不完整或格式不正确时抛出
+     */
+    public static NgramIndex read(ByteBuffer buffer) throws IOException {
+        try {
+            int size = buffer.getInt();
+            int count = buffer.getInt();
+            LongBuffer keys = slice(buffer, count * Long.BYTES).asLongBuffer();
+            IntBuffer starts = slice(buffer, (count + 1) * Integer.BYTES).asIntBuffer();
+            IntBuffer postings = slice(buffer, starts.get(count) * Integer.BYTES).asIntBuffer();
+            return new NgramIndex(keys, starts, postings, size);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("快照数据不完整", e);
+        }
+    }
+    
+    // 切出当前位置起 length 字节的视图，并跳过这段内容
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer view = buffer.slice();
+        view.limit(length);
+        buffer.position(buffer.position() + length);
+        return view;
+    }
+    
+    private static int[] verify(int[] candidates, String keyword, IntFunction<String> nameOf) {
+        int[] verified = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            if (nameOf.apply(id).contains(keyword)) {
+                verified[count++] = id;
+            }
+        }
+        return Arrays.copyOf(verified, count);
+    }
+    
+    // 短表逐个在长表中二分查找（galloping 的简化版）
+    private static int[] intersect(int[] shorter, IntBuffer longer) {
+        int[] result = new int[shorter.length];
+        int count = 0;
+        int from = 0;
+        int length = longer.limit();
+        for (int id : shorter) {
+            // 第一个不小于 id 的位置
+            int low = from;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (longer.get(mid) < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low < length && longer.get(low) == id) {
+                result[count++] = id;
+                low++;
+            }
+            from = low;
+            if (from >= length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,66 @@
+package com.fletime.toriifind.index;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 拼音转换工具。
+ * 每个汉字的读音只向 pinyin4j 查询一次并缓存，后续索引构建直接命中缓存。
+ */
+public final class Pinyin {
+    private static final String[] NO_READINGS = new String[0];
+    
+    // 拼音格式：小写，不带声调，ü 写作 v（与输入法习惯一致）
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+    
+    private static final Map<Character, String[]> READINGS_CACHE = new ConcurrentHashMap<>();
+    
+    private Pinyin() {}
+    
+    /**
+     * 判断是否是常用汉字（CJK 基本区 \u4E00-\u9FA5）
+     */
+    public static boolean isHanzi(char c) {
+        return c >= '\u4E00' && c <= '\u9FA5';
+    }
+    
+    /**
+     * 获取汉字的全部读音（不带声调），非汉字或无读音时返回空数组
+     */
+    public static String[] readings(char c) {
+        if (!isHanzi(c)) {
+            return NO_READINGS;
+        }
+        return READINGS_CACHE.computeIfAbsent(c, Pinyin::lookup);
+    }
+    
+    /**
+     * 预先填入汉字的读音（如快照中保存的读音表），之后查询该字不再调用 pinyin4j；已缓存的字保持不变
+     */
+    public static void seed(char c, String[] readings) {
+        if (isHanzi(c)) {
+            READINGS_CACHE.putIfAbsent(c, readings);
+        }
+    }
+    
+    private static String[] lookup(char c) {
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return readings != null ? readings : NO_READINGS;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return NO_READINGS;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.fletime.toriifind.index;
+
+/**
+ * 单个名称的拼音索引：默认读音的全拼字符串 + 首字母串，以及包含全部读音的拼音格。
+ * 在数据集加载时计算一次，查询时不再调用拼音库。
+ */
+public final class PinyinIndex {
+    private final String full;
+    private final String initials;
+    private final PinyinLattice lattice;
+    
+    private PinyinIndex(String full, String initials, PinyinLattice lattice) {
+        this.full = full;
+        this.initials = initials;
+        this.lattice = lattice;
+    }
+    
+    /**
+     * 为名称构建拼音索引
+     * @param name 名称
+     * @return 拼音索引
+     */
+    public static PinyinIndex of(String name) {
+        PinyinLattice lattice = PinyinLattice.of(name);
+        int length = lattice.length();
+        StringBuilder builder = new StringBuilder(length * 4);
+        StringBuilder initials = new StringBuilder(length);
+        
+        for (int i = 0; i < length; i++) {
+            String[] readings = lattice.syllables(i);
+            if (readings.length > 0) {
+                // 默认读音
+                builder.append(readings[0]);
+                initials.append(readings[0].charAt(0));
+            }
+        }
+        return new PinyinIndex(builder.toString(), initials.toString(), lattice);
+    }
+    
+    /**
+     * 小写全拼
+     */
+    public String getFull() { return full; }
+    
+    /**
+     * 首字母串，每个有读音的字符贡献一个字母（非汉字字符原样保留）
+     */
+    public String getInitials() { return initials; }
+    
+    /**
+     * 包含全部读音的拼音格
+     */
+    public PinyinLattice getLattice() { return lattice; }
+    
+    /**
+     * 按全部读音匹配关键字（全拼子串或音节前缀缩写）
+     * @param lowercaseKeyword 小写关键字
+     */
+    public boolean matches(String lowercaseKeyword) {
+        return lattice.matches(lowercaseKeyword);
+    }
+}
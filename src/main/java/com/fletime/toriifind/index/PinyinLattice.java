@@ -0,0 +1,199 @@
+package com.fletime.toriifind.index;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * 名称的拼音格（lattice）：每个字符保留全部读音，多音字不再只取第一个。
+ * 查询时把格展开成一个小型自动机逐字符推进，复杂度与 查询长度 × 格大小 成正比，
+ * 不需要枚举读音组合。
+ *
+ * 支持的匹配方式：
+ * - 全拼连续子串（可从音节中间开始），如 "anch" 命中 "长安城"
+ * - 音节前缀缩写，任意音节可以只输入开头若干字母，如 "zac"、"zhanganc"
+ */
+public final class PinyinLattice {
+    private static final String[] NO_SYLLABLES = new String[0];
+
+    private final String[][] syllables;
+    private final int[] nextChar;
+
+    // 展开后的状态：每个状态对应某个读音中的某个字母
+    private final char[] stateLetter;
+    private final int[] stateCharIndex;
+    private final boolean[] stateLast;
+    private final int[][] charStarts;
+
+    private PinyinLattice(String[][] syllables) {
+        this.syllables = syllables;
+        int length = syllables.length;
+
+        // 没有读音的字符（生僻字）在匹配时视为透明
+        this.nextChar = new int[length];
+        int next = length;
+        for (int i = length - 1; i >= 0; i--) {
+            nextChar[i] = next;
+            if (syllables[i].length > 0) {
+                next = i;
+            }
+        }
+
+        int stateCount = 0;
+        for (String[] readings : syllables) {
+            for (String reading : readings) {
+                stateCount += reading.length();
+            }
+        }
+        this.stateLetter = new char[stateCount];
+        this.stateCharIndex = new int[stateCount];
+        this.stateLast = new boolean[stateCount];
+        this.charStarts = new int[length][];
+
+        int id = 0;
+        for (int i = 0; i < length; i++) {
+            charStarts[i] = new int[syllables[i].length];
+            for (int r = 0; r < syllables[i].length; r++) {
+                String reading = syllables[i][r];
+                charStarts[i][r] = id;
+                for (int k = 0; k < reading.length(); k++) {
+                    stateLetter[id] = reading.charAt(k);
+                    stateCharIndex[id] = i;
+                    stateLast[id] = k == reading.length() - 1;
+                    id++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 为名称构建拼音格
+     */
+    public static PinyinLattice of(String name) {
+        String[][] syllables = new String[name.length()][];
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Pinyin.isHanzi(c)) {
+                syllables[i] = distinct(Pinyin.readings(c));
+            } else if (Character.isWhitespace(c)) {
+                syllables[i] = NO_SYLLABLES;
+            } else {
+                syllables[i] = new String[]{String.valueOf(Character.toLowerCase(c))};
+            }
+        }
+        return new PinyinLattice(syllables);
+    }
+
+    // 去掉声调后同音的读音会重复，保持原顺序去重
+    private static String[] distinct(String[] readings) {
+        if (readings.length <= 1) {
+            return readings;
+        }
+        Set<String> set = new LinkedHashSet<>(Arrays.asList(readings));
+        return set.toArray(new String[0]);
+    }
+
+    /**
+     * 字符个数
+     */
+    public int length() { return syllables.length; }
+
+    /**
+     * 第 index 个字符的全部读音（第一个为默认读音），生僻字为空数组
+     */
+    public String[] syllables(int index) { return syllables[index]; }
+
+    /**
+     * index 之后第一个有读音的字符下标，没有时返回 length()
+     */
+    public int nextChar(int index) { return nextChar[index]; }
+
+    /**
+     * 列出查询在格上可能连续输入的全部单字母与字母对（供 {@link NgramIndex} 建索引）：
+     * 同一读音内相邻的字母，以及某个读音的任一字母接下一个字符任一读音的首字母
+     * （音节读完或以音节前缀缩写时都会跳到下一个字符）。可能重复
+     */
+    void forEachGram(LongConsumer consumer) {
+        for (int i = 0; i < syllables.length; i++) {
+            int following = nextChar[i];
+            for (String reading : syllables[i]) {
+                for (int k = 0; k < reading.length(); k++) {
+                    char letter = reading.charAt(k);
+                    consumer.accept(NgramIndex.unigram(letter));
+                    if (k + 1 < reading.length()) {
+                        consumer.accept(NgramIndex.bigram(letter, reading.charAt(k + 1)));
+                    }
+                    if (following < syllables.length) {
+                        for (String next : syllables[following]) {
+                            consumer.accept(NgramIndex.bigram(letter, next.charAt(0)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 判断查询串能否在拼音格上匹配
+     * @param query 小写字母查询串
+     * @return 是否匹配
+     */
+    public boolean matches(String query) {
+        int stateCount = stateLetter.length;
+        if (query.isEmpty() || stateCount == 0) {
+            return query.isEmpty();
+        }
+
+        // 前一半表示"从音节开头进入"（允许缩写跳转），后一半表示从音节中间开始的子串匹配
+        boolean[] current = new boolean[stateCount * 2];
+        boolean[] next = new boolean[stateCount * 2];
+        for (int i = 0; i < syllables.length; i++) {
+            for (int start : charStarts[i]) {
+                current[start] = true;
+            }
+        }
+        for (int s = 0; s < stateCount; s++) {
+            if (!current[s]) {
+                current[stateCount + s] = true;
+            }
+        }
+
+        for (int q = 0; q < query.length(); q++) {
+            char c = query.charAt(q);
+            boolean alive = false;
+            Arrays.fill(next, false);
+
+            for (int s = 0; s < stateCount * 2; s++) {
+                if (!current[s]) continue;
+                int state = s < stateCount ? s : s - stateCount;
+                if (stateLetter[state] != c) continue;
+
+                alive = true;
+                boolean aligned = s < stateCount;
+                int following = nextChar[stateCharIndex[state]];
+
+                if (!stateLast[state]) {
+                    // 继续当前音节
+                    next[aligned ? state + 1 : stateCount + state + 1] = true;
+                }
+                if (stateLast[state] || aligned) {
+                    // 音节读完，或已输入音节前缀：进入下一个字符的任意读音
+                    if (following < syllables.length) {
+                        for (int start : charStarts[following]) {
+                            next[start] = true;
+                        }
+                    }
+                }
+            }
+
+            if (!alive) {
+                return false;
+            }
+            boolean[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return true;
+    }
+}
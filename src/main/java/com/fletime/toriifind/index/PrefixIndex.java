@@ -0,0 +1,80 @@
+package com.fletime.toriifind.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * 前缀补全索引：按字典序排好的 (词条, 记录下标) 数组，前缀查询为一次二分加顺序扫描。
+ * 一条记录可以有多个词条（名称、全拼、首字母），结果按记录去重。
+ */
+public final class PrefixIndex {
+    // 每次查询最多扫描的词条数，保证补全开销有上界
+    private static final int MAX_SCAN = 512;
+
+    private final String[] keys;
+    private final int[] values;
+
+    private PrefixIndex(String[] keys, int[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * 构建索引，词条统一转为小写
+     * @param keys 词条
+     * @param values 每个词条对应的记录下标
+     * @param count 有效词条数
+     */
+    public static PrefixIndex build(String[] keys, int[] values, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        String[] lower = new String[count];
+        for (int i = 0; i < count; i++) {
+            lower[i] = keys[i].toLowerCase();
+        }
+        Arrays.sort(order, Comparator.comparing(i -> lower[i]));
+
+        String[] sortedKeys = new String[count];
+        int[] sortedValues = new int[count];
+        for (int p = 0; p < count; p++) {
+            sortedKeys[p] = lower[order[p]];
+            sortedValues[p] = values[order[p]];
+        }
+        return new PrefixIndex(sortedKeys, sortedValues);
+    }
+
+    /**
+     * 查找词条以 prefix 开头的记录
+     * @param prefix 前缀（不区分大小写）
+     * @param limit 最多返回的记录数
+     * @return 记录下标，按词条字典序排列且不重复
+     */
+    public int[] search(String prefix, int limit) {
+        String query = prefix.toLowerCase();
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int[] result = new int[Math.min(limit, keys.length)];
+        int found = 0;
+        BitSet seen = new BitSet();
+        int end = Math.min(keys.length, low + MAX_SCAN);
+        for (int p = low; p < end && found < result.length && keys[p].startsWith(query); p++) {
+            if (!seen.get(values[p])) {
+                seen.set(values[p]);
+                result[found++] = values[p];
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+}
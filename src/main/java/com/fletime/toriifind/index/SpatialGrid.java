@@ -0,0 +1,290 @@
+package com.fletime.toriifind.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 水平面（x/z）上的均匀网格空间索引。
+ * 格子大小按点的密度自动选取，平均每格约一个点；格子以 CSR 形式紧凑存放。
+ * 最近邻查询从玩家所在格子逐圈向外扩展，一旦第 k 近的距离不超过下一圈的下界就停止。
+ * 范围查询只扫描与查询区域相交的格子，并用有界堆只保留最近的若干条，不对全部命中排序。
+ */
+public final class SpatialGrid {
+    private static final double MIN_CELL_SIZE = 16.0;
+
+    /**
+     * 查询命中：记录下标与水平距离
+     */
+    public static final class Hit {
+        private final int id;
+        private final double distance;
+
+        public Hit(int id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        public int getId() { return id; }
+        public double getDistance() { return distance; }
+    }
+
+    /**
+     * 范围查询结果：最近的若干条命中与命中总数
+     */
+    public static final class Result {
+        private final List<Hit> hits;
+        private final int total;
+
+        public Result(List<Hit> hits, int total) {
+            this.hits = hits;
+            this.total = total;
+        }
+
+        public List<Hit> getHits() { return hits; }
+        public int getTotal() { return total; }
+    }
+
+    private final double minX;
+    private final double minZ;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] ids;
+    private final double[] xs;
+    private final double[] zs;
+
+    private SpatialGrid(double minX, double minZ, double cellSize, int cols, int rows,
+                        int[] cellStart, int[] ids, double[] xs, double[] zs) {
+        this.minX = minX;
+        this.minZ = minZ;
+        this.cellSize = cellSize;
+        this.cols = cols;
+        this.rows = rows;
+        this.cellStart = cellStart;
+        this.ids = ids;
+        this.xs = xs;
+        this.zs = zs;
+    }
+
+    /**
+     * 构建网格
+     * @param pointIds 每个点对应的记录下标
+     * @param pointX 点的 x 坐标
+     * @param pointZ 点的 z 坐标
+     * @param count 点的数量
+     */
+    public static SpatialGrid build(int[] pointIds, double[] pointX, double[] pointZ, int count) {
+        if (count == 0) {
+            return new SpatialGrid(0, 0, MIN_CELL_SIZE, 0, 0, new int[1], new int[0], new double[0], new double[0]);
+        }
+
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, pointX[i]);
+            maxX = Math.max(maxX, pointX[i]);
+            minZ = Math.min(minZ, pointZ[i]);
+            maxZ = Math.max(maxZ, pointZ[i]);
+        }
+
+        double width = Math.max(1.0, maxX - minX);
+        double height = Math.max(1.0, maxZ - minZ);
+        double cellSize = Math.max(MIN_CELL_SIZE, Math.sqrt(width * height / count));
+        int cols = (int) Math.min(4096, Math.floor(width / cellSize) + 1);
+        int rows = (int) Math.min(4096, Math.floor(height / cellSize) + 1);
+        cellSize = Math.max(cellSize, Math.max(width / (cols - 0.5), height / (rows - 0.5)));
+
+        // 计数排序，把同一格子的点放在一起
+        int[] cellOf = new int[count];
+        int[] cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < count; i++) {
+            int cx = Math.min(cols - 1, (int) ((pointX[i] - minX) / cellSize));
+            int cz = Math.min(rows - 1, (int) ((pointZ[i] - minZ) / cellSize));
+            cellOf[i] = cz * cols + cx;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = Arrays.copyOf(cellStart, cols * rows);
+        int[] ids = new int[count];
+        double[] xs = new double[count];
+        double[] zs = new double[count];
+        for (int i = 0; i < count; i++) {
+            int slot = fill[cellOf[i]]++;
+            ids[slot] = pointIds[i];
+            xs[slot] = pointX[i];
+            zs[slot] = pointZ[i];
+        }
+        return new SpatialGrid(minX, minZ, cellSize, cols, rows, cellStart, ids, xs, zs);
+    }
+
+    /**
+     * 索引中的点数
+     */
+    public int size() { return ids.length; }
+
+    /**
+     * 查找离 (x, z) 最近的 k 个点
+     * @return 按距离从近到远排列
+     */
+    public List<Hit> nearest(double x, double z, int k) {
+        if (ids.length == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        int pcx = (int) Math.floor((x - minX) / cellSize);
+        int pcz = (int) Math.floor((z - minZ) / cellSize);
+        // 玩家在网格外时，从离网格最近的一圈开始
+        int firstRing = Math.max(0, Math.max(Math.max(-pcx, pcx - (cols - 1)), Math.max(-pcz, pcz - (rows - 1))));
+        int lastRing = Math.max(Math.max(Math.abs(pcx), Math.abs(pcx - (cols - 1))),
+                                Math.max(Math.abs(pcz), Math.abs(pcz - (rows - 1))));
+
+        NearestHeap heap = new NearestHeap(Math.min(k, ids.length));
+        for (int ring = firstRing; ring <= lastRing; ring++) {
+            int zFrom = Math.max(0, pcz - ring);
+            int zTo = Math.min(rows - 1, pcz + ring);
+            for (int cz = zFrom; cz <= zTo; cz++) {
+                if (Math.abs(cz - pcz) == ring) {
+                    for (int cx = Math.max(0, pcx - ring); cx <= Math.min(cols - 1, pcx + ring); cx++) {
+                        scanCell(cz * cols + cx, x, z, heap);
+                    }
+                } else {
+                    if (pcx - ring >= 0 && pcx - ring < cols) {
+                        scanCell(cz * cols + pcx - ring, x, z, heap);
+                    }
+                    if (ring > 0 && pcx + ring >= 0 && pcx + ring < cols) {
+                        scanCell(cz * cols + pcx + ring, x, z, heap);
+                    }
+                }
+            }
+
+            // 下一圈中的点离玩家至少 ring * cellSize
+            double bound = ring * cellSize;
+            if (heap.isFull() && heap.maxDistanceSq() <= bound * bound) {
+                break;
+            }
+        }
+        return heap.toSortedHits();
+    }
+
+    /**
+     * 查找以 (x, z) 为圆心、radius 为半径的圆内的点
+     * @param filter 记录下标过滤条件
+     * @param limit 最多返回的条数，按距离从近到远保留
+     */
+    public Result within(double x, double z, double radius, IntPredicate filter, int limit) {
+        return collect(x - radius, z - radius, x + radius, z + radius, x, z, radius * radius, filter, limit);
+    }
+
+    /**
+     * 查找矩形 [x1, x2] × [z1, z2] 内的点，按到 (x, z) 的距离从近到远保留
+     * @param filter 记录下标过滤条件
+     * @param limit 最多返回的条数
+     */
+    public Result box(double x1, double z1, double x2, double z2, double x, double z, IntPredicate filter, int limit) {
+        return collect(Math.min(x1, x2), Math.min(z1, z2), Math.max(x1, x2), Math.max(z1, z2),
+                       x, z, Double.POSITIVE_INFINITY, filter, limit);
+    }
+
+    private Result collect(double fromX, double fromZ, double toX, double toZ,
+                           double x, double z, double maxDistanceSq, IntPredicate filter, int limit) {
+        if (ids.length == 0 || limit <= 0) {
+            return new Result(new ArrayList<>(), 0);
+        }
+
+        int cxFrom = Math.max(0, (int) Math.floor((fromX - minX) / cellSize));
+        int czFrom = Math.max(0, (int) Math.floor((fromZ - minZ) / cellSize));
+        int cxTo = Math.min(cols - 1, (int) Math.floor((toX - minX) / cellSize));
+        int czTo = Math.min(rows - 1, (int) Math.floor((toZ - minZ) / cellSize));
+
+        NearestHeap heap = new NearestHeap(Math.min(limit, ids.length));
+        int total = 0;
+        for (int cz = czFrom; cz <= czTo; cz++) {
+            for (int cx = cxFrom; cx <= cxTo; cx++) {
+                int cell = cz * cols + cx;
+                for (int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++) {
+                    if (xs[slot] < fromX || xs[slot] > toX || zs[slot] < fromZ || zs[slot] > toZ) continue;
+                    double dx = xs[slot] - x;
+                    double dz = zs[slot] - z;
+                    double distanceSq = dx * dx + dz * dz;
+                    if (distanceSq > maxDistanceSq || !filter.test(ids[slot])) continue;
+                    total++;
+                    heap.offer(ids[slot], distanceSq);
+                }
+            }
+        }
+        return new Result(heap.toSortedHits(), total);
+    }
+
+    private void scanCell(int cell, double x, double z, NearestHeap heap) {
+        for (int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++) {
+            double dx = xs[slot] - x;
+            double dz = zs[slot] - z;
+            heap.offer(ids[slot], dx * dx + dz * dz);
+        }
+    }
+
+    // 以距离平方为键的有界最大堆
+    private static final class NearestHeap {
+        private final double[] distances;
+        private final int[] ids;
+        private int size;
+
+        NearestHeap(int capacity) {
+            this.distances = new double[capacity];
+            this.ids = new int[capacity];
+        }
+
+        boolean isFull() { return size == distances.length; }
+
+        double maxDistanceSq() { return distances[0]; }
+
+        void offer(int id, double distanceSq) {
+            if (size < distances.length) {
+                int index = size++;
+                while (index > 0) {
+                    int parent = (index - 1) >>> 1;
+                    if (distances[parent] >= distanceSq) break;
+                    distances[index] = distances[parent];
+                    ids[index] = ids[parent];
+                    index = parent;
+                }
+                distances[index] = distanceSq;
+                ids[index] = id;
+            } else if (distanceSq < distances[0]) {
+                siftDown(id, distanceSq);
+            }
+        }
+
+        private void siftDown(int id, double distanceSq) {
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+                if (distances[child] <= distanceSq) break;
+                distances[index] = distances[child];
+                ids[index] = ids[child];
+                index = child;
+            }
+            distances[index] = distanceSq;
+            ids[index] = id;
+        }
+
+        List<Hit> toSortedHits() {
+            Hit[] hits = new Hit[size];
+            for (int i = size - 1; i >= 0; i--) {
+                hits[i] = new Hit(ids[0], Math.sqrt(distances[0]));
+                size--;
+                if (size > 0) {
+                    siftDown(ids[size], distances[size]);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(hits));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.fletime.toriifind.index;
+
+/**
+ * 有界最小堆，只保留得分最高的 k 条记录。
+ * 得分与下标打包成一个 long 比较，不为每个候选创建对象；
+ * 同分时下标小（文件中靠前）的记录优先。
+ */
+public final class TopK {
+    private final long[] heap;
+    private int size;
+    private int offered;
+    
+    public TopK(int capacity) {
+        this.heap = new long[Math.max(1, capacity)];
+    }
+    
+    private static long pack(int id, int score) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - id);
+    }
+    
+    private static int unpackId(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+    
+    /**
+     * 提交一个候选
+     * @param id 记录下标
+     * @param score 得分，越大越好
+     */
+    public void offer(int id, int score) {
+        offered++;
+        long key = pack(id, score);
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (key > heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+    
+    /**
+     * 提交过的候选总数（含被淘汰的）
+     */
+    public int getOffered() { return offered; }
+    
+    /**
+     * 按得分从高到低取出保留的记录下标，调用后堆被清空
+     */
+    public int[] drain() {
+        int[] ids = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ids[i] = unpackId(heap[0]);
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return ids;
+    }
+    
+    private void siftUp(int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+    
+    private void siftDown(int index) {
+        if (size == 0) {
+            return;
+        }
+        long key = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+}
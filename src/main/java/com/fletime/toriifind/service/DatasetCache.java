@@ -0,0 +1,232 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.ToriiFind;
+import com.fletime.toriifind.config.SourceConfig;
+import com.fletime.toriifind.data.LandmarkDataset;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据集快照缓存。
+ * 每个数据源只在第一次查询时解析一次，之后查询直接使用内存中的快照；
+ * 只有当本地数据文件被重新写入时才会失效。
+ * 调用线程上只读取本地文件（快照文件、数据文件、传统配置文件），需要从网络下载时在后台进行，
+ * 调用方收到 {@link LoadingException}，下载完成后的查询直接命中缓存。
+ */
+public class DatasetCache {
+
+    private static final Map<String, LandmarkDataset> SNAPSHOTS = new ConcurrentHashMap<>();
+    
+    // 后台预加载任务；失败的任务保留到下次失效，避免反复重试
+    private static final Map<String, CompletableFuture<Void>> PRELOADS = new ConcurrentHashMap<>();
+    
+    // 后台下载任务；失败的任务在下一次查询时报告并移除，之后的查询重新下载
+    private static final Map<String, CompletableFuture<Void>> DOWNLOADS = new ConcurrentHashMap<>();
+    
+    // 每次失效加一，失效之前开始的下载不再写入缓存
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /**
+     * 数据集正在后台下载，稍后再查询
+     */
+    public static class LoadingException extends IOException {
+        public LoadingException(String sourceName) {
+            super("数据集正在下载: " + sourceName);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        LandmarkDataset load() throws IOException;
+    }
+
+    /**
+     * 获取当前数据源的快照
+     */
+    public static LandmarkDataset getCurrent() throws IOException {
+        String sourceName = ToriiFind.getCurrentSourceName();
+        return get(sourceName, ToriiFind.getAllSources().get(sourceName));
+    }
+
+    /**
+     * 获取指定数据源的快照，不存在时加载。
+     * 只在调用线程上读取本地文件；本地没有数据时在后台从网络下载，并抛出 {@link LoadingException}
+     * @param sourceName 数据源名称
+     * @param dataSource 数据源配置（可为null，此时只读取本地文件）
+     * @return 数据集快照
+     * @throws LoadingException 数据正在后台下载
+     * @throws IOException 所有加载途径都失败时抛出
+     */
+    public static LandmarkDataset get(String sourceName, SourceConfig.DataSource dataSource) throws IOException {
+        LandmarkDataset snapshot = SNAPSHOTS.get(sourceName);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        IOException localFailure = null;
+        try {
+            snapshot = computeIfAbsent(sourceName, () -> loadLocal(sourceName));
+            if (snapshot != null) {
+                return snapshot;
+            }
+        } catch (IOException e) {
+            localFailure = e;
+        }
+
+        if (dataSource != null && !dataSource.isApiMode()) {
+            CompletableFuture<Void> download = DOWNLOADS.get(sourceName);
+            if (download != null && download.isCompletedExceptionally()) {
+                // 上一次下载失败：报告原因，下一次查询重新下载
+                DOWNLOADS.remove(sourceName, download);
+                throw failureOf(download);
+            }
+            download(sourceName, dataSource);
+            throw new LoadingException(sourceName);
+        }
+
+        snapshot = computeIfAbsent(sourceName, DatasetCache::loadLegacy);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        throw localFailure != null ? localFailure : new IOException("没有可用的本地数据: " + sourceName);
+    }
+
+    // 同一数据源的并发加载与失效在此串行化，避免旧快照在失效后被写回
+    private static LandmarkDataset computeIfAbsent(String sourceName, Loader loader) throws IOException {
+        try {
+            return SNAPSHOTS.computeIfAbsent(sourceName, name -> {
+                try {
+                    return loader.load();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static IOException failureOf(CompletableFuture<Void> task) {
+        try {
+            task.join();
+            return new IOException("下载失败");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                return ((UncheckedIOException) cause).getCause();
+            }
+            return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * 仅查看已加载的快照，不触发加载
+     */
+    public static LandmarkDataset peek(String sourceName) {
+        return SNAPSHOTS.get(sourceName);
+    }
+
+    /**
+     * 在后台加载快照，不阻塞调用线程。
+     * 同一数据源同时只有一个加载任务，加载失败后直到下次失效前不再重试。
+     */
+    public static void preload(String sourceName) {
+        SourceConfig.DataSource dataSource = ToriiFind.getAllSources().get(sourceName);
+        if (SNAPSHOTS.containsKey(sourceName) || (dataSource != null && dataSource.isApiMode())) {
+            return;
+        }
+        PRELOADS.computeIfAbsent(sourceName, name -> CompletableFuture.runAsync(() -> {
+            try {
+                get(name, dataSource);
+            } catch (LoadingException e) {
+                // 本地没有数据，已转为后台下载
+            } catch (IOException e) {
+                System.err.println("[ToriiFind] 预加载数据集失败 " + name + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    // 在后台从主地址与镜像下载数据集，全部失败时回退到传统配置文件
+    private static void download(String sourceName, SourceConfig.DataSource dataSource) {
+        DOWNLOADS.computeIfAbsent(sourceName, name -> {
+            long generation = GENERATION.get();
+            return CompletableFuture.runAsync(() -> {
+                LandmarkDataset dataset;
+                try {
+                    // 对冲请求主地址与镜像，取最先响应的一个
+                    dataset = LynnJsonService.loadDatasetFromUrls(dataSource.getAllUrls());
+                } catch (IOException e) {
+                    try {
+                        dataset = loadLegacy();
+                    } catch (IOException legacyFailure) {
+                        dataset = null;
+                    }
+                    if (dataset == null) {
+                        System.err.println("[ToriiFind] 下载数据集失败 " + name + ": " + e.getMessage());
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                LandmarkDataset loaded = dataset;
+                SNAPSHOTS.compute(name, (key, current) ->
+                    current != null || GENERATION.get() != generation ? current : loaded);
+                System.out.println("[ToriiFind] 数据集下载完成: " + name);
+            });
+        });
+    }
+    
+    /**
+     * 使指定数据源的快照失效，下次查询时重新加载
+     */
+    public static void invalidate(String sourceName) {
+        GENERATION.incrementAndGet();
+        PRELOADS.remove(sourceName);
+        DOWNLOADS.remove(sourceName);
+        if (SNAPSHOTS.remove(sourceName) != null) {
+            System.out.println("[ToriiFind] 数据集快照已失效: " + sourceName);
+        }
+    }
+
+    /**
+     * 读取本地数据：快照文件 -> 本地数据文件
+     * @return 数据集；本地没有数据文件时为 null
+     */
+    private static LandmarkDataset loadLocal(String sourceName) throws IOException {
+        Path localFile = LocalDataService.getLocalDataFile(sourceName);
+        if (!Files.exists(localFile)) {
+            return null;
+        }
+        LandmarkDataset snapshot = SnapshotService.load(localFile);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            // 没有可用的快照文件时读取JSON；两个分区都因查询而加载后，在后台为下次启动写出快照，
+            // 不为写快照而提前加载另一个分区
+            SnapshotService.Key key = SnapshotService.keyOf(localFile);
+            LandmarkDataset dataset = LynnJsonService.loadDatasetFromFile(localFile);
+            dataset.whenLoaded().thenRunAsync(() -> SnapshotService.write(localFile, key, dataset));
+            return dataset;
+        } catch (IOException e) {
+            System.err.println("[ToriiFind] 读取本地文件失败 " + sourceName + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 读取传统配置文件
+     * @return 数据集；文件不存在时为 null
+     */
+    private static LandmarkDataset loadLegacy() throws IOException {
+        Path legacyFile = FabricLoader.getInstance().getConfigDir().resolve("toriifind.json");
+        return Files.exists(legacyFile) ? LynnJsonService.loadDatasetFromFile(legacyFile) : null;
+    }
+}
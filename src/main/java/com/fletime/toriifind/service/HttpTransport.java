@@ -0,0 +1,478 @@
+package com.fletime.toriifind.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 所有网络请求共用的 HTTP 传输层。
+ * 全局只有一个 HttpClient：优先使用 HTTP/2，同一主机的连接保持复用，重复的查询与探测不再每次握手；
+ * 统一 User-Agent，超时按调用场景取 {@link Timeout} 中的值，响应头与响应体各有期限。
+ * 所有请求都声明接受 gzip/deflate 压缩，响应体经 {@link #body} 边读边解压。
+ * 有多个镜像时用 {@link #sendHedged} 对冲请求，不再逐个等待超时。
+ */
+public class HttpTransport {
+    public static final String USER_AGENT = "ToriiFind-Mod/1.0";
+
+    /**
+     * 按调用场景划分的超时：从发出请求到收到响应头为止，以及读完响应体的期限
+     */
+    public enum Timeout {
+        /**
+         * 镜像与数据源的可用性探测
+         */
+        PROBE(Duration.ofSeconds(2), Duration.ofSeconds(5)),
+        /**
+         * API 查询、版本检查、配置获取
+         */
+        QUERY(Duration.ofSeconds(5), Duration.ofSeconds(20)),
+        /**
+         * 下载完整的数据文件
+         */
+        DOWNLOAD(Duration.ofSeconds(15), Duration.ofMinutes(3));
+
+        private final Duration duration;
+        private final Duration bodyDuration;
+
+        Timeout(Duration duration, Duration bodyDuration) {
+            this.duration = duration;
+            this.bodyDuration = bodyDuration;
+        }
+
+        public Duration getDuration() { return duration; }
+
+        /**
+         * 从收到响应头起读完响应体的期限
+         */
+        public Duration getBodyDuration() { return bodyDuration; }
+    }
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    // 对冲延迟的上下限；没有测量数据的主机按上限等待
+    private static final long MIN_HEDGE_DELAY_MS = 50;
+    private static final long MAX_HEDGE_DELAY_MS = 2000;
+    private static final Map<String, Latency> LATENCIES = new ConcurrentHashMap<>();
+
+    // HttpRequest 的超时只覆盖到响应头为止，响应体的读取期限由这里的定时器负责
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ToriiFind-HttpWatchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 根据地址创建请求，用于对冲请求中按镜像生成各自的请求
+     */
+    @FunctionalInterface
+    public interface RequestFactory {
+        HttpRequest.Builder create(String url) throws IOException;
+    }
+
+    /**
+     * 对冲请求的结果：胜出的地址与其响应
+     */
+    public static final class HedgedResponse {
+        private final String url;
+        private final HttpResponse<InputStream> response;
+
+        private HedgedResponse(String url, HttpResponse<InputStream> response) {
+            this.url = url;
+            this.response = response;
+        }
+
+        public String getUrl() { return url; }
+        public HttpResponse<InputStream> getResponse() { return response; }
+    }
+
+    /**
+     * 创建带统一请求头与超时的 GET 请求，可继续添加请求头或改为其他方法
+     * @throws IOException 地址格式不正确时抛出
+     */
+    public static HttpRequest.Builder request(String url, Timeout timeout) throws IOException {
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout.getDuration())
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", "gzip, deflate");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("无效的地址: " + url, e);
+        }
+    }
+
+    /**
+     * 只取前 length 字节的 GET 请求。
+     * 按字节范围读取时不能压缩，否则取到的是压缩流的片段
+     */
+    public static HttpRequest.Builder rangeRequest(String url, Timeout timeout, int length) throws IOException {
+        return request(url, timeout)
+            .setHeader("Accept-Encoding", "identity")
+            .header("Range", "bytes=0-" + (length - 1));
+    }
+
+    /**
+     * 发送请求
+     * @throws IOException 网络异常、超时或线程被中断时抛出
+     */
+    public static <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return CLIENT.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断", e);
+        }
+    }
+
+    /**
+     * 对冲请求多个镜像：先请求排在最前的地址，超过该主机的对冲延迟仍未收到响应头时再加入下一个镜像，
+     * 某个请求失败时立即加入下一个；取第一个可用的响应，其余请求随即取消。
+     * 对冲延迟按各主机以往的响应时间自适应调整，总耗时取决于最快的可用镜像，而不是各镜像超时之和。
+     * 请求内容因地址而异（如只对某个地址发送条件请求）时，应把该地址排在最前
+     * @param urls 按优先级排列的地址，null 会被跳过
+     * @param accept 判断状态码是否可用，不可用的响应视为该镜像失败
+     * @return 胜出的响应，调用方负责关闭响应体
+     * @throws IOException 所有地址都失败时抛出最后一个错误
+     */
+    public static HedgedResponse sendHedged(List<String> urls, RequestFactory factory, IntPredicate accept) throws IOException {
+        Hedge hedge = new Hedge(urls, factory, accept);
+        hedge.launchNext();
+        try {
+            return hedge.result.get();
+        } catch (InterruptedException e) {
+            hedge.result.cancel(false);
+            hedge.cancelOthers(null);
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 一次对冲请求的状态，回调可能来自多个线程，统一在对象锁内处理
+     */
+    private static final class Hedge {
+        private final List<String> urls = new ArrayList<>();
+        private final RequestFactory factory;
+        private final IntPredicate accept;
+        private final CompletableFuture<HedgedResponse> result = new CompletableFuture<>();
+        private final List<CompletableFuture<HttpResponse<InputStream>>> inFlight = new ArrayList<>();
+        private int next;
+        private int pending;
+        private IOException lastError;
+
+        Hedge(List<String> urls, RequestFactory factory, IntPredicate accept) {
+            for (String url : urls) {
+                if (url != null) {
+                    this.urls.add(url);
+                }
+            }
+            this.factory = factory;
+            this.accept = accept;
+        }
+
+        synchronized void launchNext() {
+            while (!result.isDone() && next < urls.size()) {
+                String url = urls.get(next++);
+                HttpRequest request;
+                try {
+                    request = factory.create(url).build();
+                } catch (IOException | IllegalArgumentException e) {
+                    lastError = e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                CompletableFuture<HttpResponse<InputStream>> future =
+                    CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+                inFlight.add(future);
+                pending++;
+                future.whenComplete((response, error) -> onComplete(future, url, start, response, error));
+
+                if (next < urls.size()) {
+                    // 期间已有请求失败并加入了下一个镜像时，这次计时作废
+                    int launched = next;
+                    CompletableFuture.delayedExecutor(hedgeDelay(url), TimeUnit.MILLISECONDS).execute(() -> {
+                        synchronized (this) {
+                            if (next == launched) {
+                                launchNext();
+                            }
+                        }
+                    });
+                }
+                return;
+            }
+            if (!result.isDone() && pending == 0) {
+                result.completeExceptionally(lastError != null ? lastError : new IOException("所有镜像地址都不可用"));
+            }
+        }
+
+        private synchronized void onComplete(CompletableFuture<HttpResponse<InputStream>> future, String url, long start,
+                                             HttpResponse<InputStream> response, Throwable error) {
+            pending--;
+            if (result.isDone()) {
+                // 落败的请求：已收到的响应体直接关闭，释放连接
+                if (response != null) {
+                    closeQuietly(response);
+                }
+                return;
+            }
+
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                lastError = cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+                System.err.println("[ToriiFind] 请求失败 " + url + ": " + lastError.getMessage());
+            } else if (accept.test(response.statusCode())) {
+                latencyOf(url).record((System.nanoTime() - start) / 1_000_000);
+                result.complete(new HedgedResponse(url, response));
+                cancelOthers(future);
+                return;
+            } else {
+                closeQuietly(response);
+                lastError = new IOException("HTTP " + response.statusCode());
+                System.err.println("[ToriiFind] 请求失败 " + url + ": HTTP " + response.statusCode());
+            }
+            // 失败的镜像不再占用对冲等待，立即换下一个
+            launchNext();
+        }
+
+        synchronized void cancelOthers(CompletableFuture<HttpResponse<InputStream>> winner) {
+            for (CompletableFuture<HttpResponse<InputStream>> future : inFlight) {
+                if (future != winner) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private static void closeQuietly(HttpResponse<InputStream> response) {
+            try {
+                response.body().close();
+            } catch (IOException ignored) {
+                // 连接由客户端回收
+            }
+        }
+    }
+
+    /**
+     * 等待该地址多久后再加入下一个镜像
+     */
+    private static long hedgeDelay(String url) {
+        return Math.max(MIN_HEDGE_DELAY_MS, Math.min(MAX_HEDGE_DELAY_MS, latencyOf(url).hedgeDelay()));
+    }
+
+    private static Latency latencyOf(String url) {
+        String host;
+        try {
+            URI uri = URI.create(url);
+            host = uri.getHost() + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            host = url;
+        }
+        return LATENCIES.computeIfAbsent(host, key -> new Latency());
+    }
+
+    /**
+     * 主机响应时间的平滑均值与平均偏差，按 TCP 估算重传超时的方法更新，
+     * 均值加四倍偏差作为对冲延迟，正常波动的响应不会触发多余的请求
+     */
+    private static final class Latency {
+        private double mean = -1;
+        private double deviation;
+
+        synchronized void record(long millis) {
+            if (mean < 0) {
+                mean = millis;
+                deviation = millis / 2.0;
+            } else {
+                deviation = 0.75 * deviation + 0.25 * Math.abs(mean - millis);
+                mean = 0.875 * mean + 0.125 * millis;
+            }
+        }
+
+        synchronized long hedgeDelay() {
+            return mean < 0 ? MAX_HEDGE_DELAY_MS : (long) (mean + 4 * deviation);
+        }
+    }
+
+    /**
+     * 发送 HEAD 请求
+     * @return 响应状态码
+     */
+    public static int head(String url, Timeout timeout) throws IOException {
+        return send(request(url, timeout).method("HEAD", HttpRequest.BodyPublishers.noBody()),
+            HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * 发送 GET 请求并返回响应体，调用方负责关闭
+     * @throws IOException 网络异常或状态码不是 200 时抛出
+     */
+    public static InputStream openStream(String url, Timeout timeout) throws IOException {
+        return openStream(request(url, timeout), timeout);
+    }
+
+    /**
+     * 发送请求并返回响应体，调用方负责关闭
+     * @param timeout 创建请求时所用的场景，决定响应体的读取期限
+     * @throws IOException 网络异常或状态码不是 200 时抛出
+     */
+    public static InputStream openStream(HttpRequest.Builder request, Timeout timeout) throws IOException {
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        return body(checkOk(response), timeout);
+    }
+
+    /**
+     * 按 Content-Encoding 解压的响应体，调用方负责关闭。
+     * 超过 {@link Timeout#getBodyDuration() 读取期限} 仍未读完时关闭连接，读取抛出 {@link HttpTimeoutException}
+     * @param timeout 创建请求时所用的场景
+     */
+    public static InputStream body(HttpResponse<InputStream> response, Timeout timeout) throws IOException {
+        InputStream body = withDeadline(response.body(), timeout.getBodyDuration());
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity")
+            .trim().toLowerCase(Locale.ROOT);
+        try {
+            switch (encoding) {
+                case "gzip":
+                case "x-gzip":
+                    return new GZIPInputStream(body, 8192);
+                case "deflate":
+                    return inflate(body);
+                default:
+                    return body;
+            }
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    // deflate 按规范是 zlib 格式，但有的服务器直接发送裸 deflate 数据，按前两个字节区分
+    private static InputStream inflate(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 2);
+        byte[] header = in.readNBytes(2);
+        in.unread(header);
+        boolean zlib = header.length == 2 && (header[0] & 0x0F) == 8
+            && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(in, inflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // 自行传入的 Inflater 不会随流关闭，及时释放本地内存
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * 期限一到就关闭底层的流，阻塞中的读取随即结束；关闭返回的流时取消计时
+     */
+    static InputStream withDeadline(InputStream in, Duration deadline) {
+        return new DeadlineInputStream(in, deadline);
+    }
+
+    /**
+     * 有读取期限的响应体
+     */
+    private static final class DeadlineInputStream extends FilterInputStream {
+        private final ScheduledFuture<?> timer;
+        private volatile boolean expired;
+
+        DeadlineInputStream(InputStream in, Duration deadline) {
+            super(in);
+            this.timer = WATCHDOG.schedule(this::expire, deadline.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // 连接由客户端回收
+            }
+        }
+
+        private IOException timeoutOr(IOException e) {
+            if (!expired) {
+                return e;
+            }
+            HttpTimeoutException timeout = new HttpTimeoutException("读取响应超时");
+            timeout.initCause(e);
+            return timeout;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return in.read();
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return in.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return in.skip(n);
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            timer.cancel(false);
+            in.close();
+        }
+    }
+
+    /**
+     * 状态码不是 200 时关闭响应体并抛出异常
+     */
+    public static HttpResponse<InputStream> checkOk(HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        return response;
+    }
+}
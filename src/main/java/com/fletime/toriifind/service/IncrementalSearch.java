@@ -0,0 +1,43 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.data.LandmarkSection;
+
+import java.util.BitSet;
+
+/**
+ * 边输入边搜索的增量上下文。
+ * 记住上一次关键字的命中集合；新关键字是上一次的延长（如 星 -> 星海 -> 星海镇）时，
+ * 命中只可能是上一次命中的子集，只需在这个集合里筛选；否则回到索引搜索。
+ */
+public class IncrementalSearch {
+    private LandmarkSection lastSection;
+    private String lastKeyword;
+    private BitSet lastMatches;
+
+    /**
+     * 按名称或拼音搜索，能缩小时只筛选上一次的命中
+     * @param section 数据分区，与上一次不是同一个快照时重新走索引
+     * @param keyword 关键字
+     * @param allowed 过滤条件选出的记录位图，为 null 时不过滤；不影响记住的命中集合
+     * @param limit 最多返回的条数
+     * @return 排序后的结果与命中总数
+     */
+    public synchronized LynnJsonService.SearchResult search(LandmarkSection section, String keyword, BitSet allowed, int limit) {
+        BitSet candidates = canNarrow(section, keyword) ? lastMatches : null;
+        BitSet matches = new BitSet(section.size());
+        LynnJsonService.SearchResult result =
+            LynnJsonService.searchByNameOrPinyin(section, keyword, allowed, limit, candidates, matches);
+
+        lastSection = section;
+        lastKeyword = keyword;
+        lastMatches = matches;
+        return result;
+    }
+
+    private boolean canNarrow(LandmarkSection section, String keyword) {
+        // 数据重新加载后分区是新对象，旧的候选下标不再有效
+        return section == lastSection
+            && lastKeyword != null && !lastKeyword.isEmpty()
+            && keyword.startsWith(lastKeyword);
+    }
+}
@@ -1,20 +1,104 @@
 package com.fletime.toriifind.service;
 
 import com.fletime.toriifind.config.SourceConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import net.fabricmc.loader.api.FabricLoader;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class LocalDataService {
     
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    
+    /**
+     * 随每次下载写出的元数据，保存在数据文件旁的 {@code <source>.meta.json} 中。
+     * 版本比较与状态显示只读这个小文件，不读取数据本体。
+     */
+    public static class Metadata {
+        private String url;
+        private String version;
+        private String etag;
+        private String lastModified;
+        private long size;
+        private String sha256;
+        private long downloadedAt;
+        
+        private Metadata() {
+        }
+        
+        public Metadata(String url, String version, String etag, String lastModified, long size, String sha256, long downloadedAt) {
+            this.url = url;
+            this.version = version;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.sha256 = sha256;
+            this.downloadedAt = downloadedAt;
+        }
+        
+        /**
+         * 下载所用的地址（主地址或某个镜像）
+         */
+        public String getUrl() { return url; }
+        
+        /**
+         * 数据文件根级别的version字段（可能为null）
+         */
+        public String getVersion() { return version; }
+        
+        /**
+         * 下载时服务器返回的 ETag 响应头（可能为null）
+         */
+        public String getEtag() { return etag; }
+        
+        /**
+         * 下载时服务器返回的 Last-Modified 响应头（可能为null）
+         */
+        public String getLastModified() { return lastModified; }
+        
+        /**
+         * 数据文件字节数
+         */
+        public long getSize() { return size; }
+        
+        /**
+         * 数据文件内容的 SHA-256（十六进制）
+         */
+        public String getSha256() { return sha256; }
+        
+        /**
+         * 下载完成的时间（毫秒时间戳）
+         */
+        public long getDownloadedAt() { return downloadedAt; }
+        
+        /**
+         * 是否有可用于条件请求的校验值
+         */
+        public boolean hasValidators() { return url != null && (etag != null || lastModified != null); }
+    }
+    
     /**
      * 获取本地数据目录
      */
@@ -31,41 +115,58 @@ public class LocalDataService {
     }
     
     /**
-     * 初始化所有数据源到本地
+     * 获取指定数据源的元数据文件路径
+     */
+    public static Path getMetadataFile(String sourceName) {
+        return getLocalDataDir().resolve(sourceName + ".meta.json");
+    }
+    
+    /**
+     * 读取数据源的元数据
+     * @return 元数据；不存在、无法解析或与数据文件大小不符（如下载中途退出）时为 null
+     */
+    public static Metadata readMetadata(String sourceName) {
+        Path metadataFile = getMetadataFile(sourceName);
+        try (Reader reader = Files.newBufferedReader(metadataFile, StandardCharsets.UTF_8)) {
+            Metadata metadata = GSON.fromJson(reader, Metadata.class);
+            if (metadata != null && metadata.getSize() == Files.size(getLocalDataFile(sourceName))) {
+                return metadata;
+            }
+        } catch (Exception e) {
+            // 没有可用的元数据，由调用方回退
+        }
+        return null;
+    }
+    
+    /**
+     * 写出元数据：先写临时文件再原子替换，读取方不会看到写了一半的内容
+     */
+    private static void writeMetadata(String sourceName, Metadata metadata) throws IOException {
+        Path metadataFile = getMetadataFile(sourceName);
+        Path tempFile = metadataFile.resolveSibling(metadataFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            GSON.toJson(metadata, writer);
+        }
+        moveAtomically(tempFile, metadataFile);
+    }
+    
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * 初始化本地数据目录。
+     * 启动时不再无条件下载，各数据源随后由 {@link #checkAndUpdateDataSource} 按条件请求更新
      */
     public static CompletableFuture<Void> initializeAllDataSources(Map<String, SourceConfig.DataSource> sources) {
         return CompletableFuture.runAsync(() -> {
             try {
                 // 确保目录存在
                 Files.createDirectories(getLocalDataDir());
-                
-                for (Map.Entry<String, SourceConfig.DataSource> entry : sources.entrySet()) {
-                    String sourceName = entry.getKey();
-                    SourceConfig.DataSource source = entry.getValue();
-                    
-                    // 只下载JSON类型的数据源
-                    if (!source.isApiMode() && source.getUrl() != null) {
-                        try {
-                            downloadDataSource(sourceName, source);
-                            System.out.println("[ToriiFind] 已下载数据源: " + sourceName);
-                        } catch (Exception e) {
-                            System.err.println("[ToriiFind] 下载数据源失败 " + sourceName + ": " + e.getMessage());
-                            // 尝试镜像URL
-                            if (source.getMirrorUrls() != null) {
-                                for (String mirrorUrl : source.getMirrorUrls()) {
-                                    try {
-                                        downloadFromUrl(mirrorUrl, getLocalDataFile(sourceName));
-                                        System.out.println("[ToriiFind] 通过镜像下载数据源成功: " + sourceName);
-                                        break;
-                                    } catch (Exception me) {
-                                        System.err.println("[ToriiFind] 镜像下载失败: " + me.getMessage());
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                
                 System.out.println("[ToriiFind] 数据源初始化完成");
             } catch (Exception e) {
                 System.err.println("[ToriiFind] 数据源初始化失败: " + e.getMessage());
@@ -74,29 +175,134 @@ public class LocalDataService {
     }
     
     /**
-     * 下载单个数据源
+     * 无条件下载单个数据源（依次尝试主地址与镜像）
      */
     public static void downloadDataSource(String sourceName, SourceConfig.DataSource source) throws IOException {
         if (source.isApiMode() || source.getUrl() == null) {
             return;
         }
         
-        Path localFile = getLocalDataFile(sourceName);
-        downloadFromUrl(source.getUrl(), localFile);
+        updateFromUrls(sourceName, source, null);
     }
     
     /**
-     * 从URL下载文件
+     * 对冲请求主地址与镜像（见 {@link HttpTransport#sendHedged}），最先返回 200 或 304 的地址决定结果；
+     * 该地址的数据写入失败时，再对其余镜像重新发起请求。
+     * 发送条件请求时该地址排在最前，其余镜像要等过了它的对冲延迟才加入，
+     * 免得无条件的完整下载抢在 304 之前返回
+     * @param metadata 本地数据的元数据，为 null 时无条件下载
+     * @return 是否写入了新数据
      */
-    private static void downloadFromUrl(String url, Path targetFile) throws IOException {
-        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(15000);
-        conn.setRequestProperty("User-Agent", "ToriiFind-Mod/1.0");
+    private static boolean updateFromUrls(String sourceName, SourceConfig.DataSource source, Metadata metadata) throws IOException {
+        List<String> remaining = new ArrayList<>();
+        for (String url : source.getAllUrls()) {
+            if (url != null) {
+                remaining.add(url);
+            }
+        }
+        if (metadata != null && metadata.hasValidators() && remaining.remove(metadata.getUrl())) {
+            remaining.add(0, metadata.getUrl());
+        }
         
-        try (InputStream in = conn.getInputStream()) {
-            Files.copy(in, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        IOException lastException = null;
+        while (!remaining.isEmpty()) {
+            HttpTransport.HedgedResponse hedged = HttpTransport.sendHedged(remaining,
+                url -> downloadRequest(url, metadata), status -> status == 200 || status == 304);
+            remaining.remove(hedged.getUrl());
+            try {
+                boolean updated = saveDownload(hedged.getUrl(), hedged.getResponse(), sourceName, metadata);
+                if (updated) {
+                    onDownloaded(sourceName);
+                }
+                return updated;
+            } catch (IOException e) {
+                System.err.println("[ToriiFind] 下载数据源失败 " + hedged.getUrl() + ": " + e.getMessage());
+                lastException = e;
+            }
+        }
+        throw lastException != null ? lastException : new IOException("所有镜像地址都不可用");
+    }
+    
+    /**
+     * 本地文件已被重写：重建快照文件，并使旧的内存快照作废
+     */
+    private static void onDownloaded(String sourceName) {
+        try {
+            SnapshotService.rebuild(getLocalDataFile(sourceName));
+        } catch (IOException e) {
+            // 快照只是加速手段，下次加载时会回退到解析JSON
+            System.err.println("[ToriiFind] 生成快照失败 " + sourceName + ": " + e.getMessage());
+        }
+        DatasetCache.invalidate(sourceName);
+    }
+    
+    /**
+     * 数据文件的下载请求。
+     * 本地元数据来自同一地址且带有 ETag / Last-Modified 时发送条件请求，未变化时服务器只返回 304
+     * @param metadata 本地数据的元数据，为 null 时无条件下载
+     */
+    private static HttpRequest.Builder downloadRequest(String url, Metadata metadata) throws IOException {
+        HttpRequest.Builder request = HttpTransport.request(url, HttpTransport.Timeout.DOWNLOAD);
+        // 不同镜像的校验值互不相通，只对下载时所用的地址发送
+        if (metadata != null && url.equals(metadata.getUrl())) {
+            if (metadata.getEtag() != null) {
+                request.header("If-None-Match", metadata.getEtag());
+            }
+            if (metadata.getLastModified() != null) {
+                request.header("If-Modified-Since", metadata.getLastModified());
+            }
+        }
+        return request;
+    }
+    
+    /**
+     * 保存下载的数据文件，同时生成元数据。
+     * 先写入临时文件并计算摘要，完成后原子替换数据文件，再原子写出元数据
+     * @param metadata 本地数据的元数据，为 null 时无条件下载
+     * @return 是否写入了新数据；304 或内容与本地相同时为 false
+     */
+    private static boolean saveDownload(String url, HttpResponse<InputStream> response, String sourceName,
+                                        Metadata metadata) throws IOException {
+        if (response.statusCode() == 304) {
+            response.body().close();
+            return false;
+        }
+        HttpTransport.checkOk(response);
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        
+        Path targetFile = getLocalDataFile(sourceName);
+        Path tempFile = targetFile.resolveSibling(targetFile.getFileName() + ".part");
+        MessageDigest digest = sha256();
+        // 边解压边写入临时文件，摘要按解压后的内容计算
+        try (InputStream in = new DigestInputStream(HttpTransport.body(response, HttpTransport.Timeout.DOWNLOAD), digest)) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        long size = Files.size(tempFile);
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        
+        if (metadata != null && sha256.equals(metadata.getSha256())) {
+            // 服务器不支持条件请求或换了镜像，但内容未变：保留本地文件，只记下新的校验值
+            Files.deleteIfExists(tempFile);
+            writeMetadata(sourceName, new Metadata(url, metadata.getVersion(), etag, lastModified,
+                size, sha256, metadata.getDownloadedAt()));
+            return false;
+        }
+        
+        moveAtomically(tempFile, targetFile);
+        writeMetadata(sourceName, new Metadata(url, LynnJsonService.readVersion(targetFile), etag, lastModified,
+            size, sha256, System.currentTimeMillis()));
+        return true;
+    }
+    
+    private static MessageDigest sha256() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
         }
     }
     
@@ -108,7 +314,9 @@ public class LocalDataService {
     }
     
     /**
-     * 检查并更新数据源
+     * 检查并更新数据源。
+     * 有本地校验值时先发一次条件 HEAD 请求，未变化的数据源只花费一次 304 往返；
+     * 有变化时优先沿补丁链增量更新，没有可用补丁时再完整下载
      */
     public static CompletableFuture<Boolean> checkAndUpdateDataSource(String sourceName, SourceConfig.DataSource source) {
         return CompletableFuture.supplyAsync(() -> {
@@ -117,26 +325,46 @@ public class LocalDataService {
                     return false;
                 }
                 
-                // 检查远程版本
-                String remoteVersion = getRemoteVersion(source.getUrl());
-                Path localFile = getLocalDataFile(sourceName);
-                
-                if (!Files.exists(localFile)) {
-                    // 本地文件不存在，直接下载
-                    downloadDataSource(sourceName, source);
-                    return true;
+                boolean exists = Files.exists(getLocalDataFile(sourceName));
+                Metadata metadata = exists ? readMetadata(sourceName) : null;
+                String localVersion = exists ? getLocalVersion(sourceName) : null;
+                String remoteVersion = null;
+                Metadata remote = null;
+                if (exists && (metadata == null || !metadata.hasValidators())) {
+                    // 没有校验值（旧版本下载或服务器不提供）：按版本号判断是否需要下载
+                    remoteVersion = getRemoteVersion(source.getUrl());
+                    if (remoteVersion == null || remoteVersion.equals(localVersion)) {
+                        return false;
+                    }
+                    metadata = null;
+                } else if (exists) {
+                    HttpResponse<Void> head = head(metadata);
+                    if (head != null && head.statusCode() == 304) {
+                        return false;
+                    }
+                    // 已变化：补丁链必须到达远程版本才算更新完成，版本未知时直接完整下载
+                    remoteVersion = getRemoteVersion(metadata.getUrl());
+                    if (head != null && head.statusCode() == 200) {
+                        remote = new Metadata(metadata.getUrl(), remoteVersion,
+                            head.headers().firstValue("ETag").orElse(null),
+                            head.headers().firstValue("Last-Modified").orElse(null), 0, null, 0);
+                        if (remoteVersion != null && remoteVersion.equals(localVersion)) {
+                            // 文件重新发布但版本未变：只记下新的校验值
+                            writeMetadata(sourceName, new Metadata(metadata.getUrl(), metadata.getVersion(),
+                                remote.getEtag(), remote.getLastModified(), metadata.getSize(), metadata.getSha256(),
+                                metadata.getDownloadedAt()));
+                            return false;
+                        }
+                    }
                 }
                 
-                // 比较版本
-                String localVersion = getLocalVersion(localFile);
-                if (remoteVersion != null && !remoteVersion.equals(localVersion)) {
-                    // 版本不同，更新本地文件
-                    downloadDataSource(sourceName, source);
-                    System.out.println("[ToriiFind] 已更新数据源: " + sourceName + " 版本: " + remoteVersion);
-                    return true;
+                boolean updated = (localVersion != null && remoteVersion != null
+                        && updateFromPatches(sourceName, source, localVersion, remoteVersion, remote))
+                    || updateFromUrls(sourceName, source, metadata);
+                if (updated) {
+                    System.out.println("[ToriiFind] 已更新数据源: " + sourceName + " 版本: " + getLocalVersion(sourceName));
                 }
-                
-                return false;
+                return updated;
             } catch (Exception e) {
                 System.err.println("[ToriiFind] 检查更新失败 " + sourceName + ": " + e.getMessage());
                 return false;
@@ -144,19 +372,84 @@ public class LocalDataService {
         });
     }
     
+    /**
+     * 用本地校验值向下载地址发送条件 HEAD 请求
+     * @return 响应，未变化时状态码为 304；请求失败时为 null，按已变化处理
+     */
+    private static HttpResponse<Void> head(Metadata metadata) {
+        try {
+            HttpRequest.Builder request = HttpTransport.request(metadata.getUrl(), HttpTransport.Timeout.QUERY)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody());
+            if (metadata.getEtag() != null) {
+                request.header("If-None-Match", metadata.getEtag());
+            }
+            if (metadata.getLastModified() != null) {
+                request.header("If-Modified-Since", metadata.getLastModified());
+            }
+            return HttpTransport.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 从本地版本出发沿补丁链增量更新到远程版本，依次尝试主地址与镜像。
+     * 合并补丁后流式改写本地数据，写入临时文件再原子替换。
+     * 补丁链取自条件 HEAD 所用的地址时沿用其 ETag / Last-Modified，否则元数据不带校验值，之后按版本号检查更新
+     * @param targetVersion 远程数据的版本
+     * @param remote 远程文件的地址与校验值（来自条件 HEAD），没有时为 null
+     * @return 是否写入了新数据；没有到达远程版本的补丁链时为 false，由调用方完整下载
+     */
+    private static boolean updateFromPatches(String sourceName, SourceConfig.DataSource source,
+                                             String localVersion, String targetVersion, Metadata remote) {
+        Path targetFile = getLocalDataFile(sourceName);
+        for (String url : source.getAllUrls()) {
+            if (url == null) continue;
+            
+            try {
+                PatchService.Changes changes = PatchService.fetchChain(url, localVersion, targetVersion);
+                if (changes == null) {
+                    return false;
+                }
+                
+                Path tempFile = targetFile.resolveSibling(targetFile.getFileName() + ".part");
+                MessageDigest digest = sha256();
+                try (Reader reader = Files.newBufferedReader(targetFile, StandardCharsets.UTF_8);
+                     Writer writer = new OutputStreamWriter(new DigestOutputStream(
+                         new BufferedOutputStream(Files.newOutputStream(tempFile)), digest), StandardCharsets.UTF_8)) {
+                    changes.apply(reader, writer);
+                } catch (IOException e) {
+                    Files.deleteIfExists(tempFile);
+                    throw e;
+                }
+                long size = Files.size(tempFile);
+                moveAtomically(tempFile, targetFile);
+                boolean sameFile = remote != null && url.equals(remote.getUrl());
+                writeMetadata(sourceName, new Metadata(url, changes.getVersion(),
+                    sameFile ? remote.getEtag() : null, sameFile ? remote.getLastModified() : null,
+                    size, HexFormat.of().formatHex(digest.digest()), System.currentTimeMillis()));
+                // 重建快照并使内存中的数据集作废，分区与索引在下次查询时按新数据生成
+                onDownloaded(sourceName);
+                return true;
+            } catch (IOException e) {
+                System.err.println("[ToriiFind] 增量更新失败 " + url + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+    
     /**
      * 获取远程版本号
      */
     private static String getRemoteVersion(String url) {
         try {
-            HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setRequestProperty("Range", "bytes=0-2047"); // 读取更多内容以确保找到正确的version字段
+            // 读取更多内容以确保找到正确的version字段
+            HttpResponse<InputStream> response = HttpTransport.send(
+                HttpTransport.rangeRequest(url, HttpTransport.Timeout.QUERY, 2048),
+                HttpResponse.BodyHandlers.ofInputStream());
             
-            if (conn.getResponseCode() == 200 || conn.getResponseCode() == 206) {
-                try (InputStream in = conn.getInputStream()) {
+            try (InputStream in = HttpTransport.body(response, HttpTransport.Timeout.QUERY)) {
+                if (response.statusCode() == 200 || response.statusCode() == 206) {
                     byte[] buffer = new byte[2048];
                     int bytesRead = in.read(buffer);
                     String content = new String(buffer, 0, bytesRead, java.nio.charset.StandardCharsets.UTF_8);
@@ -170,18 +463,25 @@ public class LocalDataService {
         return null;
     }
     
+    /**
+     * 获取数据源的本地版本号，优先读取元数据
+     */
+    public static String getLocalVersion(String sourceName) {
+        Metadata metadata = readMetadata(sourceName);
+        if (metadata != null) {
+            return metadata.getVersion();
+        }
+        // 旧版本下载、尚无元数据的文件
+        return getLocalVersion(getLocalDataFile(sourceName));
+    }
+    
     /**
      * 获取本地文件版本号
      */
     public static String getLocalVersion(Path localFile) {
+        // 流式扫描，读到根级别的version即停止
         try {
-            byte[] buffer = new byte[2048];
-            try (InputStream in = Files.newInputStream(localFile)) {
-                int bytesRead = in.read(buffer);
-                String content = new String(buffer, 0, bytesRead, java.nio.charset.StandardCharsets.UTF_8);
-                
-                return extractRootVersion(content);
-            }
+            return LynnJsonService.readVersion(localFile);
         } catch (Exception e) {
             // 忽略版本读取错误
         }
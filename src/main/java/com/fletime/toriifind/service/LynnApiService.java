@@ -1,14 +1,16 @@
 package com.fletime.toriifind.service;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import com.fletime.toriifind.config.SourceConfig;
+import com.fletime.toriifind.data.ValueDictionary;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -19,8 +21,9 @@ public class LynnApiService {
     public static class LynnLandmark {
         private final String id;
         private final String name;
-        private final String grade;
-        private final String status;
+        // 等级与状态存放字典编码，同一取值不会在每条记录里各存一份
+        private final int gradeCode;
+        private final int statusCode;
         private final Coordinates coordinates;
         
         public static class Coordinates {
@@ -52,22 +55,28 @@ public class LynnApiService {
         }
         
         public LynnLandmark(String id, String name, String grade, String status, Coordinates coordinates) {
+            this(id, name, ValueDictionary.GRADES.encode(grade), ValueDictionary.STATUSES.encode(status), coordinates);
+        }
+        
+        public LynnLandmark(String id, String name, int gradeCode, int statusCode, Coordinates coordinates) {
             this.id = id;
             this.name = name;
-            this.grade = grade;
-            this.status = status;
+            this.gradeCode = gradeCode;
+            this.statusCode = statusCode;
             this.coordinates = coordinates;
         }
         
         public String getId() { return id; }
         public String getName() { return name; }
-        public String getGrade() { return grade; }
-        public String getStatus() { return status; }
+        public String getGrade() { return ValueDictionary.GRADES.decode(gradeCode); }
+        public String getStatus() { return ValueDictionary.STATUSES.decode(statusCode); }
+        public int getGradeCode() { return gradeCode; }
+        public int getStatusCode() { return statusCode; }
         public Coordinates getCoordinates() { return coordinates; }
         
         @Override
         public String toString() {
-            return id + " " + grade + " " + name + " " + coordinates.toString();
+            return id + " " + getGrade() + " " + name + " " + coordinates.toString();
         }
     }
     
@@ -90,8 +99,7 @@ public class LynnApiService {
             urlBuilder.append("&name=").append(URLEncoder.encode(name, StandardCharsets.UTF_8));
         }
         
-        String responseJson = makeHttpRequest(urlBuilder.toString());
-        return parseLandmarksFromJson(responseJson);
+        return parseLandmarks(requestJson(urlBuilder.toString()));
     }
     
     /**
@@ -107,30 +115,40 @@ public class LynnApiService {
         if (!urlBuilder.toString().endsWith("/")) {
             urlBuilder.append("/");
         }
-        urlBuilder.append("api/landmarks/").append(landmarkId).append("?source=").append(source);
+        // 编号作为路径的一段，需要编码 "/"、"?"、"#" 等字符；URLEncoder 把空格写成 "+"，在路径中应为 %20
+        urlBuilder.append("api/landmarks/").append(URLEncoder.encode(landmarkId, StandardCharsets.UTF_8).replace("+", "%20"))
+            .append("?source=").append(source);
         
-        String responseJson = makeHttpRequest(urlBuilder.toString());
-        List<LynnLandmark> landmarks = parseLandmarksFromJson("[" + responseJson + "]");
+        JsonElement response = requestJson(urlBuilder.toString());
+        JsonArray wrapped = new JsonArray();
+        if (response != null) {
+            wrapped.add(response);
+        }
+        List<LynnLandmark> landmarks = parseLandmarks(wrapped);
         return landmarks.isEmpty() ? null : landmarks.get(0);
     }
     
-    private static String makeHttpRequest(String urlString) throws IOException {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(5000);
-        conn.setRequestProperty("Accept", "application/json");
-        
-        try (InputStream in = conn.getInputStream()) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    // 从（解压后的）响应流直接解析JSON，不把整个响应读成字符串；响应不是合法JSON时返回 null
+    private static JsonElement requestJson(String urlString) throws IOException {
+        try (Reader reader = new InputStreamReader(HttpTransport.openStream(
+                HttpTransport.request(urlString, HttpTransport.Timeout.QUERY).header("Accept", "application/json"),
+                HttpTransport.Timeout.QUERY),
+                StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader);
+        } catch (JsonParseException e) {
+            // 读取中途的网络错误同样按网络异常上报
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            return null;
         }
     }
     
-    private static List<LynnLandmark> parseLandmarksFromJson(String json) {
+    private static List<LynnLandmark> parseLandmarks(JsonElement json) {
         List<LynnLandmark> landmarks = new ArrayList<>();
         
         try {
-            JsonArray jsonArray = JsonParser.parseString(json).getAsJsonArray();
+            JsonArray jsonArray = json.getAsJsonArray();
             
             for (int i = 0; i < jsonArray.size(); i++) {
                 JsonObject landmarkObj = jsonArray.get(i).getAsJsonObject();
@@ -1,66 +1,84 @@
 package com.fletime.toriifind.service;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkSection;
+import com.fletime.toriifind.data.LandmarkStore;
+import com.fletime.toriifind.index.TopK;
 import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 
 public class LynnJsonService {
     
     /**
-     * 从数据源加载Lynn格式的数据（优先使用本地文件）
+     * 从数据源加载Lynn格式的数据（优先使用内存快照，其次本地文件）
      * @param dataSource 数据源配置
      * @return Landmark列表
      * @throws IOException 网络或解析异常
      */
     public static List<LynnLandmark> loadFromDataSource(com.fletime.toriifind.config.SourceConfig.DataSource dataSource) throws IOException {
-        // 首先尝试查找对应的本地文件
+        return loadDatasetFromDataSource(dataSource).getAll();
+    }
+    
+    /**
+     * 从数据源加载完整数据集（优先使用内存快照，其次本地文件）
+     * @param dataSource 数据源配置
+     * @return 数据集快照
+     * @throws IOException 网络或解析异常
+     */
+    public static LandmarkDataset loadDatasetFromDataSource(com.fletime.toriifind.config.SourceConfig.DataSource dataSource) throws IOException {
+        // 查找数据源对应的名称，以名称为键复用快照
         for (java.util.Map.Entry<String, com.fletime.toriifind.config.SourceConfig.DataSource> entry : 
              com.fletime.toriifind.ToriiFind.getAllSources().entrySet()) {
             if (entry.getValue() == dataSource) {
-                String sourceName = entry.getKey();
-                Path localFile = LocalDataService.getLocalDataFile(sourceName);
-                
-                if (Files.exists(localFile)) {
-                    try {
-                        return loadFromFile(localFile);
-                    } catch (Exception e) {
-                        System.err.println("[ToriiFind] 读取本地文件失败，尝试从网络下载: " + e.getMessage());
-                        break;
-                    }
-                }
-                break;
+                return DatasetCache.get(entry.getKey(), dataSource);
             }
         }
         
-        // 本地文件不存在或读取失败，从网络加载
-        String[] urls = dataSource.getAllUrls();
-        IOException lastException = null;
-        
+        // 未登记的数据源，直接从网络加载
+        return loadDatasetFromUrls(dataSource.getAllUrls());
+    }
+    
+    /**
+     * 从主地址与镜像中最先响应的一个加载完整数据集（对冲请求，见 {@link HttpTransport#sendHedged}）。
+     * 胜出的镜像数据无法解析时，再对其余镜像重新发起请求
+     * @param urls 按优先级排列的地址
+     * @return 数据集快照
+     * @throws IOException 所有镜像都不可用时抛出
+     */
+    public static LandmarkDataset loadDatasetFromUrls(String[] urls) throws IOException {
+        List<String> remaining = new ArrayList<>();
         for (String url : urls) {
-            if (url == null) continue;
-            
-            try {
-                String jsonContent = downloadJsonContent(url);
-                return parseJsonContent(jsonContent);
+            if (url != null) {
+                remaining.add(url);
+            }
+        }
+        IOException lastException = null;
+        while (!remaining.isEmpty()) {
+            HttpTransport.HedgedResponse hedged = HttpTransport.sendHedged(remaining,
+                url -> HttpTransport.request(url, HttpTransport.Timeout.DOWNLOAD), status -> status == 200);
+            remaining.remove(hedged.getUrl());
+            try (Reader reader = new InputStreamReader(HttpTransport.body(hedged.getResponse(), HttpTransport.Timeout.DOWNLOAD), StandardCharsets.UTF_8)) {
+                return readDataset(reader);
             } catch (IOException e) {
+                System.err.println("[ToriiFind] 读取数据失败 " + hedged.getUrl() + ": " + e.getMessage());
                 lastException = e;
-                // 继续尝试下一个URL
             }
         }
-        
-        // 所有URL都失败了
         throw lastException != null ? lastException : new IOException("所有镜像地址都不可用");
     }
     
@@ -71,8 +89,7 @@ public class LynnJsonService {
      * @throws IOException 网络或解析异常
      */
     public static List<LynnLandmark> loadFromUrl(String jsonUrl) throws IOException {
-        String jsonContent = downloadJsonContent(jsonUrl);
-        return parseJsonContent(jsonContent);
+        return loadDatasetFromUrl(jsonUrl).getAll();
     }
     
     /**
@@ -82,127 +99,500 @@ public class LynnJsonService {
      * @throws IOException 文件读取或解析异常
      */
     public static List<LynnLandmark> loadFromFile(Path filePath) throws IOException {
-        try (Reader reader = Files.newBufferedReader(filePath)) {
-            StringBuilder content = new StringBuilder();
-            char[] buffer = new char[1024];
-            int length;
-            while ((length = reader.read(buffer)) != -1) {
-                content.append(buffer, 0, length);
+        return loadDatasetFromFile(filePath).getAll();
+    }
+    
+    /**
+     * 从JSON文件URL加载完整数据集
+     * @param jsonUrl JSON文件URL
+     * @return 数据集快照
+     * @throws IOException 网络或解析异常
+     */
+    public static LandmarkDataset loadDatasetFromUrl(String jsonUrl) throws IOException {
+        // 边下载边解析，不在内存中保留整个响应
+        try (Reader reader = new InputStreamReader(HttpTransport.openStream(jsonUrl, HttpTransport.Timeout.DOWNLOAD),
+                StandardCharsets.UTF_8)) {
+            return readDataset(reader);
+        }
+    }
+    
+    /**
+     * 从本地文件加载完整数据集
+     * @param filePath 本地文件路径
+     * @return 数据集快照
+     * @throws IOException 文件读取或解析异常
+     */
+    public static LandmarkDataset loadDatasetFromFile(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("数据文件过大: " + filePath.getFileName());
             }
-            return parseJsonContent(content.toString());
+            // 映射只在扫描期间使用，尚未加载的分区各自复制所需的字节，不引用映射
+            return readDataset(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
         }
     }
     
-    private static String downloadJsonContent(String jsonUrl) throws IOException {
-        HttpURLConnection conn = (HttpURLConnection) new URL(jsonUrl).openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(5000);
+    /**
+     * 只读取本地文件根级别的version字段，读到后立即停止，不解析记录
+     * @return 版本号，不存在时为null
+     * @throws IOException 文件读取或解析异常
+     */
+    public static String readVersion(Path filePath) throws IOException {
+        // 流式读取，只缓冲一小段；version写在数组之后时也只按词法跳过记录
+        try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            return readVersion(reader);
+        }
+    }
+    
+    /**
+     * 从流中只读取根级别的version字段，读到后立即停止，不解析记录（用于网络响应）
+     * @return 版本号，不存在时为null
+     * @throws IOException 读取或解析异常
+     */
+    public static String readVersion(Reader reader) throws IOException {
+        try {
+            JsonReader json = new JsonReader(reader);
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("version".equals(json.nextName()) && isPrimitive(json.peek())) {
+                    return json.nextString();
+                }
+                json.skipValue();
+            }
+            return null;
+        } catch (RuntimeException e) {
+            throw new IOException("数据解析失败: " + e.getMessage(), e);
+        }
+    }
+    
+    private static final byte[] VERSION = ascii("version");
+    private static final byte[] ZEROTH = ascii("zeroth");
+    private static final byte[] HOUTU = ascii("houtu");
+    private static final byte[] ID = ascii("id");
+    private static final byte[] NAME = ascii("name");
+    private static final byte[] GRADE = ascii("grade");
+    private static final byte[] STATUS = ascii("status");
+    private static final byte[] COORDINATES = ascii("coordinates");
+    private static final byte[] X = ascii("x");
+    private static final byte[] Y = ascii("y");
+    private static final byte[] Z = ascii("z");
+    
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * 在文件的字节上建立分区索引：只按字节扫描一遍，记下根级别 zeroth 与 houtu 数组的字节范围，不解析记录。
+     * 每个分区只复制自己的那段字节，在第一次用到时才解析，编号与名称以 UTF-8 字节直接复制进列，不解码为字符串。
+     */
+    private static LandmarkDataset readDataset(ByteBuffer buffer) throws IOException {
+        Utf8JsonScanner json = new Utf8JsonScanner(buffer);
+        String version = null;
+        ByteBuffer zeroth = null;
+        ByteBuffer houtu = null;
         
-        try (InputStream in = conn.getInputStream()) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        json.beginObject();
+        while (json.hasNext()) {
+            json.nextName();
+            if (json.nameEquals(VERSION)) {
+                json.nextValue();
+                if (json.isPrimitive()) {
+                    version = json.tokenString();
+                }
+            } else if (json.nameEquals(ZEROTH) || json.nameEquals(HOUTU)) {
+                boolean isZeroth = json.nameEquals(ZEROTH);
+                int start = json.position();
+                json.skipValue();
+                // 同名字段出现多次时以最后一次为准，与完整解析一致
+                ByteBuffer section = copyRange(buffer, start, json.position());
+                if (isZeroth) {
+                    zeroth = section;
+                } else {
+                    houtu = section;
+                }
+            } else {
+                json.skipValue();
+            }
         }
+        json.endObject();
+        
+        return new LandmarkDataset(version, sectionLoader(zeroth), sectionLoader(houtu));
+    }
+    
+    // [start, end) 范围的字节复制到堆上
+    private static ByteBuffer copyRange(ByteBuffer buffer, int start, int end) {
+        ByteBuffer copy = ByteBuffer.allocate(end - start);
+        copy.put(buffer.duplicate().position(start).limit(end));
+        return copy.flip();
     }
     
-    private static List<LynnLandmark> parseJsonContent(String jsonContent) {
-        List<LynnLandmark> landmarks = new ArrayList<>();
+    // 解析一个分区数组的字节；为 null 表示文件中没有该分区
+    private static LandmarkDataset.StoreLoader sectionLoader(ByteBuffer bytes) {
+        if (bytes == null) {
+            return () -> new LandmarkStore.Builder().build();
+        }
+        return () -> readLandmarks(new Utf8JsonScanner(bytes, 0));
+    }
+    
+    private static LandmarkStore readLandmarks(Utf8JsonScanner json) throws IOException {
+        LandmarkStore.Builder landmarks = new LandmarkStore.Builder();
+        // 编号与名称的字节先复制到这里，读完整条记录再写入列
+        ByteBuffer id = ByteBuffer.allocate(64);
+        ByteBuffer name = ByteBuffer.allocate(256);
         
-        try {
-            JsonObject rootObject = JsonParser.parseString(jsonContent).getAsJsonObject();
+        json.beginArray();
+        while (json.hasNext()) {
+            boolean hasId = false, hasName = false;
+            String grade = null, status = "Normal";
+            double x = Double.NaN, y = Double.NaN, z = Double.NaN;
             
-            // 解析零洲数据
-            if (rootObject.has("zeroth")) {
-                JsonArray zerothArray = rootObject.getAsJsonArray("zeroth");
-                landmarks.addAll(parseArrayToLandmarks(zerothArray));
+            json.beginObject();
+            while (json.hasNext()) {
+                json.nextName();
+                if (json.nameEquals(ID)) {
+                    json.nextValue();
+                    if (hasId = !json.isNull()) {
+                        id = copy(json.tokenBytes(), id);
+                    }
+                } else if (json.nameEquals(NAME)) {
+                    json.nextValue();
+                    if (hasName = !json.isNull()) {
+                        name = copy(json.tokenBytes(), name);
+                    }
+                } else if (json.nameEquals(GRADE)) {
+                    json.nextValue();
+                    grade = json.isNull() ? null : json.tokenString();
+                } else if (json.nameEquals(STATUS)) {
+                    json.nextValue();
+                    status = json.isNull() ? null : json.tokenString();
+                } else if (json.nameEquals(COORDINATES) && json.isObject()) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        json.nextName();
+                        if (json.nameEquals(X)) {
+                            json.nextValue();
+                            x = json.tokenDouble();
+                        } else if (json.nameEquals(Y)) {
+                            json.nextValue();
+                            y = json.tokenDouble();
+                        } else if (json.nameEquals(Z)) {
+                            json.nextValue();
+                            z = json.tokenDouble();
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                } else {
+                    json.skipValue();
+                }
             }
+            json.endObject();
             
-            // 解析后土数据  
-            if (rootObject.has("houtu")) {
-                JsonArray houtuArray = rootObject.getAsJsonArray("houtu");
-                landmarks.addAll(parseArrayToLandmarks(houtuArray));
+            if (!hasId || !hasName || grade == null || status == null) {
+                throw new IOException("记录缺少必需字段: 第 " + (landmarks.size() + 1) + " 条");
             }
-        } catch (Exception e) {
-            // 解析失败时返回空列表
+            landmarks.add(id, name, grade, status, x, y, z);
         }
+        json.endArray();
         
-        return landmarks;
+        return landmarks.build();
     }
     
-    private static List<LynnLandmark> parseArrayToLandmarks(JsonArray jsonArray) {
-        List<LynnLandmark> landmarks = new ArrayList<>();
-        
-        for (int i = 0; i < jsonArray.size(); i++) {
-            JsonObject landmarkObj = jsonArray.get(i).getAsJsonObject();
+    // 把 source 的剩余字节复制到 target（容量不足时换成更大的缓冲区），返回可读的 target
+    private static ByteBuffer copy(ByteBuffer source, ByteBuffer target) {
+        if (source.remaining() > target.capacity()) {
+            target = ByteBuffer.allocate(Math.max(source.remaining(), target.capacity() * 2));
+        }
+        target.clear();
+        target.put(source);
+        target.flip();
+        return target;
+    }
+    
+    /**
+     * 以流式方式解析网络上的数据集：记录直接写入列式存储，不构建JSON对象树，
+     * 不认识的字段在词法层面跳过
+     */
+    private static LandmarkDataset readDataset(Reader reader) throws IOException {
+        try {
+            JsonReader json = new JsonReader(reader);
+            String version = null;
+            LandmarkStore zeroth = null;
+            LandmarkStore houtu = null;
             
-            String id = landmarkObj.get("id").getAsString();
-            String name = landmarkObj.get("name").getAsString();
-            String grade = landmarkObj.get("grade").getAsString();
-            String status = landmarkObj.has("status") ? landmarkObj.get("status").getAsString() : "Normal";
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "version":
+                        if (isPrimitive(json.peek())) {
+                            version = json.nextString();
+                        } else {
+                            json.skipValue();
+                        }
+                        break;
+                    case "zeroth":
+                        zeroth = readLandmarks(json);
+                        break;
+                    case "houtu":
+                        houtu = readLandmarks(json);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
             
-            // 解析坐标
-            LynnLandmark.Coordinates coordinates;
-            if (landmarkObj.has("coordinates")) {
-                JsonObject coordObj = landmarkObj.getAsJsonObject("coordinates");
-                String x = coordObj.get("x").getAsString();
-                String y = coordObj.get("y").getAsString();
-                String z = coordObj.get("z").getAsString();
-                coordinates = new LynnLandmark.Coordinates(x, y, z);
-            } else {
-                coordinates = new LynnLandmark.Coordinates("Unknown", "Unknown", "Unknown");
+            return new LandmarkDataset(version,
+                zeroth != null ? zeroth : new LandmarkStore.Builder().build(),
+                houtu != null ? houtu : new LandmarkStore.Builder().build());
+        } catch (RuntimeException e) {
+            // 解析失败时不缓存空结果，交给调用方回退
+            throw new IOException("数据解析失败: " + e.getMessage(), e);
+        }
+    }
+    
+    private static LandmarkStore readLandmarks(JsonReader json) throws IOException {
+        LandmarkStore.Builder landmarks = new LandmarkStore.Builder();
+        
+        json.beginArray();
+        while (json.hasNext()) {
+            String id = null, name = null, grade = null, status = "Normal";
+            String x = null, y = null, z = null;
+            
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "id": id = readString(json); break;
+                    case "name": name = readString(json); break;
+                    case "grade": grade = readString(json); break;
+                    case "status": status = readString(json); break;
+                    case "coordinates":
+                        // 坐标直接写入坐标列，不生成中间对象
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            switch (json.nextName()) {
+                                case "x": x = readString(json); break;
+                                case "y": y = readString(json); break;
+                                case "z": z = readString(json); break;
+                                default: json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                        break;
+                    default:
+                        json.skipValue();
+                }
             }
+            json.endObject();
             
-            landmarks.add(new LynnLandmark(id, name, grade, status, coordinates));
+            if (id == null || name == null || grade == null || status == null) {
+                throw new IOException("记录缺少必需字段: " + json.getPath());
+            }
+            landmarks.add(id, name, grade, status, x, y, z);
         }
+        json.endArray();
         
-        return landmarks;
+        return landmarks.build();
+    }
+    
+    // 数字按原始写法读成字符串；null 读作 null
+    private static String readString(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+    
+    private static boolean isPrimitive(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER;
     }
     
     /**
-     * 按名称或拼音过滤Landmark
-     * @param landmarks 原始Landmark列表
+     * 排序后的搜索结果：只物化得分最高的若干条，同时保留命中总数
+     */
+    public static class SearchResult {
+        private final List<LynnLandmark> landmarks;
+        private final int total;
+        
+        public SearchResult(List<LynnLandmark> landmarks, int total) {
+            this.landmarks = landmarks;
+            this.total = total;
+        }
+        
+        public List<LynnLandmark> getLandmarks() { return landmarks; }
+        public int getTotal() { return total; }
+    }
+    
+    // 相关度分档：完全匹配 > 前缀 > 子串 > 拼音 > 容错；档内名称越短越靠前
+    private static final int SCORE_EXACT = 5000;
+    private static final int SCORE_PREFIX = 4000;
+    private static final int SCORE_SUBSTRING = 3000;
+    private static final int SCORE_PINYIN = 2000;
+    private static final int SCORE_FUZZY = 1000;
+    private static final int FUZZY_PENALTY_PER_EDIT = 200;
+    
+    private static int lengthBoost(String name) {
+        return Math.max(0, 100 - name.length());
+    }
+    
+    /**
+     * 按名称或拼音搜索Landmark，按相关度排序并只保留前 limit 条
+     * @param section 数据分区
      * @param keyword 关键字
-     * @param toPinyinFunc 拼音转换函数
-     * @return 过滤后的列表
+     * @param limit 最多返回的条数
+     * @return 排序后的结果与命中总数
      */
-    public static List<LynnLandmark> filterByNameOrPinyin(List<LynnLandmark> landmarks, String keyword, java.util.function.Function<String, String> toPinyinFunc) {
-        List<LynnLandmark> results = new ArrayList<>();
+    public static SearchResult searchByNameOrPinyin(LandmarkSection section, String keyword, int limit) {
+        return searchByNameOrPinyin(section, keyword, null, limit, null, null);
+    }
+    
+    /**
+     * 按名称或拼音搜索，只保留 allowed 中的记录
+     * @param allowed 过滤条件选出的记录位图，为 null 时不过滤
+     */
+    public static SearchResult searchByNameOrPinyin(LandmarkSection section, String keyword, BitSet allowed, int limit) {
+        return searchByNameOrPinyin(section, keyword, allowed, limit, null, null);
+    }
+    
+    /**
+     * 按名称或拼音搜索，candidates 不为 null 时只在其中筛选
+     * @param allowed 过滤条件选出的记录位图，为 null 时不过滤
+     * @param candidates 候选记录（如上一次较短关键字的命中集合），为 null 时走索引
+     * @param matchedOut 不为 null 时写入本次名称/拼音命中的记录（不受过滤条件影响，不含容错结果）
+     * @return 排序后的结果与命中总数
+     */
+    static SearchResult searchByNameOrPinyin(LandmarkSection section, String keyword, BitSet allowed, int limit,
+                                             BitSet candidates, BitSet matchedOut) {
+        TopK top = new TopK(limit);
+        BitSet matched = matchedOut != null ? matchedOut : new BitSet(section.size());
+        matched.clear();
+        boolean pinyinKeyword = keyword.matches("^[a-zA-Z]+$");
+        String lowercaseKeyword = keyword.toLowerCase();
         
-        // 首先按名称精确匹配
-        for (LynnLandmark landmark : landmarks) {
-            if (landmark.getName().contains(keyword)) {
-                results.add(landmark);
+        if (candidates != null) {
+            // 关键字是上一次的延长：命中只可能在上一次的候选中
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                String name = section.getName(i);
+                if (name.contains(keyword)) {
+                    offer(top, allowed, i, nameScore(name, keyword));
+                    matched.set(i);
+                } else if (pinyinKeyword && section.getPinyin(i).matches(lowercaseKeyword)) {
+                    offer(top, allowed, i, SCORE_PINYIN + lengthBoost(name));
+                    matched.set(i);
+                }
+            }
+        } else {
+            // 名称匹配（n-gram 倒排索引）
+            for (int index : section.searchName(keyword)) {
+                offer(top, allowed, index, nameScore(section.getName(index), keyword));
+                matched.set(index);
+            }
+            
+            // 关键字是字母时按拼音匹配（拼音 n-gram 取候选，在拼音格上按全部读音校验）
+            if (pinyinKeyword) {
+                for (int index : section.searchPinyin(lowercaseKeyword)) {
+                    if (matched.get(index)) continue;
+                    offer(top, allowed, index, SCORE_PINYIN + lengthBoost(section.getName(index)));
+                    matched.set(index);
+                }
             }
         }
         
-        // 如果没有找到且关键字是字母，则按拼音搜索
-        if (results.isEmpty() && keyword.matches("^[a-zA-Z]+$")) {
-            String lowercaseKeyword = keyword.toLowerCase();
-            for (LynnLandmark landmark : landmarks) {
-                String namePinyin = toPinyinFunc.apply(landmark.getName()).toLowerCase();
-                if (namePinyin.contains(lowercaseKeyword)) {
-                    results.add(landmark);
-                }
+        // 名称与拼音都没有命中时，按编辑距离容错匹配（有时间预算）；
+        // 有命中但都被过滤条件排除时不做容错，否则会把其他记录的近似结果当作命中
+        if (matched.isEmpty()) {
+            for (Map.Entry<Integer, Integer> entry : section.searchFuzzy(keyword).entrySet()) {
+                int index = entry.getKey();
+                int score = SCORE_FUZZY - entry.getValue() * FUZZY_PENALTY_PER_EDIT;
+                offer(top, allowed, index, score + lengthBoost(section.getName(index)));
             }
         }
         
-        return results;
+        int total = top.getOffered();
+        List<LynnLandmark> results = new ArrayList<>();
+        for (int index : top.drain()) {
+            results.add(section.get(index));
+        }
+        return new SearchResult(results, total);
+    }
+    
+    private static void offer(TopK top, BitSet allowed, int index, int score) {
+        if (allowed == null || allowed.get(index)) {
+            top.offer(index, score);
+        }
     }
     
     /**
-     * 按ID过滤Landmark
-     * @param landmarks 原始Landmark列表
+     * 按文件顺序列出过滤条件选出的记录
+     * @param allowed 记录位图，为 null 时列出全部
+     * @param limit 最多返回的条数
+     * @return 结果与命中总数
+     */
+    public static SearchResult listByFilter(LandmarkSection section, BitSet allowed, int limit) {
+        List<LynnLandmark> results = new ArrayList<>(limit);
+        if (allowed == null) {
+            for (int i = 0; i < section.size() && i < limit; i++) {
+                results.add(section.get(i));
+            }
+            return new SearchResult(results, section.size());
+        }
+        for (int i = allowed.nextSetBit(0); i >= 0 && results.size() < limit; i = allowed.nextSetBit(i + 1)) {
+            results.add(section.get(i));
+        }
+        return new SearchResult(results, allowed.cardinality());
+    }
+    
+    private static int nameScore(String name, String keyword) {
+        int score = name.equals(keyword) ? SCORE_EXACT
+            : name.startsWith(keyword) ? SCORE_PREFIX
+            : SCORE_SUBSTRING;
+        return score + lengthBoost(name);
+    }
+    
+    /**
+     * 按ID搜索Landmark：优先使用编号索引（精确/前缀/区间），否则退回到包含匹配
+     * @param section 数据分区
      * @param idKeyword ID关键字
-     * @return 过滤后的列表
+     * @param limit 最多返回的条数
+     * @return 按编号顺序排列的结果与命中总数
      */
-    public static List<LynnLandmark> filterById(List<LynnLandmark> landmarks, String idKeyword) {
-        List<LynnLandmark> results = new ArrayList<>();
+    public static SearchResult searchById(LandmarkSection section, String idKeyword, int limit) {
+        return searchById(section, idKeyword, limit, true);
+    }
+    
+    /**
+     * 按ID搜索Landmark
+     * @param allowContains 编号索引无法回答时是否退回到包含匹配；为 false 时只做精确（同数字）与区间匹配，
+     *                      如零洲编号 "12" 不会命中 "112"
+     * @return 按编号顺序排列的结果与命中总数
+     */
+    public static SearchResult searchById(LandmarkSection section, String idKeyword, int limit, boolean allowContains) {
+        int[] indexes = section.searchId(idKeyword);
         
-        for (LynnLandmark landmark : landmarks) {
-            if (landmark.getId().contains(idKeyword)) {
-                results.add(landmark);
+        if (indexes == null && !allowContains) {
+            return new SearchResult(new ArrayList<>(), 0);
+        }
+        if (indexes == null) {
+            // 索引无法回答（如 "01" 这类片段），按旧逻辑包含匹配
+            List<LynnLandmark> results = new ArrayList<>();
+            int total = 0;
+            for (int i = 0; i < section.size(); i++) {
+                if (section.getId(i).contains(idKeyword)) {
+                    if (results.size() < limit) {
+                        results.add(section.get(i));
+                    }
+                    total++;
+                }
             }
+            return new SearchResult(results, total);
         }
         
-        return results;
+        List<LynnLandmark> results = new ArrayList<>(Math.min(limit, indexes.length));
+        for (int i = 0; i < indexes.length && i < limit; i++) {
+            results.add(section.get(indexes[i]));
+        }
+        return new SearchResult(results, indexes.length);
     }
 }
\ No newline at end of file
@@ -6,8 +6,8 @@ import com.fletime.toriifind.config.SourceConfig;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -123,12 +123,7 @@ public class MirrorStatusService {
             long startTime = System.currentTimeMillis();
             
             // 首先用HEAD请求检查可用性
-            HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-            conn.setRequestMethod("HEAD");
-            conn.setConnectTimeout(2000);
-            conn.setReadTimeout(2000);
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = HttpTransport.head(url, HttpTransport.Timeout.PROBE);
             long responseTime = System.currentTimeMillis() - startTime;
             
             if (responseCode == 200) {
@@ -148,16 +143,13 @@ public class MirrorStatusService {
      */
     private static String getVersionFromUrl(String url) {
         try {
-            HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(1500);
-            conn.setReadTimeout(1500);
-            
             // 只读取前1KB来获取版本信息
-            conn.setRequestProperty("Range", "bytes=0-1023");
+            HttpResponse<InputStream> response = HttpTransport.send(
+                HttpTransport.rangeRequest(url, HttpTransport.Timeout.PROBE, 1024),
+                HttpResponse.BodyHandlers.ofInputStream());
             
-            if (conn.getResponseCode() == 200 || conn.getResponseCode() == 206) {
-                try (InputStream in = conn.getInputStream()) {
+            try (InputStream in = HttpTransport.body(response, HttpTransport.Timeout.PROBE)) {
+                if (response.statusCode() == 200 || response.statusCode() == 206) {
                     byte[] buffer = new byte[1024];
                     int bytesRead = in.read(buffer);
                     String content = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
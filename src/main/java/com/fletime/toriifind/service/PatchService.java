@@ -0,0 +1,303 @@
+package com.fletime.toriifind.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 数据版本之间的增量补丁。
+ * 每次数据更新时，在数据文件旁发布从上一版本到新版本的补丁：
+ * {@code <数据地址去掉 .json>.patches/<旧版本>.json}，内容为
+ * {@code {"from": 旧版本, "to": 新版本, "zeroth": {...}, "houtu": {...}}}，
+ * 每个分区含 added（新增记录）、modified（按id替换的记录）、removed（删除的id）。
+ * 客户端先取齐从本地版本到远程版本的补丁并合并，再流式改写一遍本地数据，
+ * 不把整个文件解析成树；补丁链不完整时由调用方回退到完整下载。
+ */
+public class PatchService {
+    // 补丁链过长时完整下载更省事，也避免服务器数据异常时无限循环
+    static final int MAX_CHAIN_LENGTH = 30;
+    private static final String[] SECTIONS = {"zeroth", "houtu"};
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 按起点版本获取补丁
+     */
+    interface PatchSource {
+        /**
+         * @return 从该版本出发的补丁；不存在时为 null
+         */
+        JsonObject fetch(String fromVersion) throws IOException;
+    }
+
+    /**
+     * 从给定版本出发的补丁地址
+     */
+    public static String getPatchUrl(String dataUrl, String fromVersion) {
+        String base = dataUrl.endsWith(".json") ? dataUrl.substring(0, dataUrl.length() - ".json".length()) : dataUrl;
+        return base + ".patches/" + URLEncoder.encode(fromVersion, StandardCharsets.UTF_8) + ".json";
+    }
+
+    /**
+     * 取齐从本地版本到目标版本的补丁链并合并
+     * @param dataUrl 数据文件地址，补丁与其放在一起
+     * @param localVersion 本地数据的版本
+     * @param targetVersion 远程数据的版本
+     * @return 合并后的改动；补丁链缺失或在 {@value #MAX_CHAIN_LENGTH} 个补丁内到不了目标版本时为 null
+     * @throws IOException 网络异常、补丁格式错误或版本不衔接时抛出
+     */
+    public static Changes fetchChain(String dataUrl, String localVersion, String targetVersion) throws IOException {
+        return fetchChain(from -> fetchPatch(getPatchUrl(dataUrl, from)), localVersion, targetVersion);
+    }
+
+    static Changes fetchChain(PatchSource source, String localVersion, String targetVersion) throws IOException {
+        Changes changes = new Changes(localVersion);
+        for (int i = 0; i < MAX_CHAIN_LENGTH && !changes.version.equals(targetVersion); i++) {
+            JsonObject patch = source.fetch(changes.version);
+            if (patch == null) {
+                return null;
+            }
+            String from = changes.version;
+            changes.add(patch);
+            System.out.println("[ToriiFind] 已获取补丁: " + from + " -> " + changes.version);
+        }
+        return changes.version.equals(targetVersion) && !changes.version.equals(localVersion) ? changes : null;
+    }
+
+    /**
+     * 下载补丁
+     * @return 补丁；服务器上没有该补丁（404）时为 null
+     */
+    private static JsonObject fetchPatch(String patchUrl) throws IOException {
+        HttpResponse<InputStream> response = HttpTransport.send(
+            HttpTransport.request(patchUrl, HttpTransport.Timeout.QUERY), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return null;
+        }
+        HttpTransport.checkOk(response);
+        try (Reader reader = new InputStreamReader(HttpTransport.body(response, HttpTransport.Timeout.QUERY), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("补丁格式错误: " + patchUrl, e);
+        }
+    }
+
+    /**
+     * 若干个连续补丁合并后的改动，效果与逐个应用相同：
+     * 记录的顺序保持不变，修改原位替换，新增（或删除后重新加入）的记录追加在分区末尾
+     */
+    public static final class Changes {
+        private final Map<String, SectionChanges> sections = new LinkedHashMap<>();
+        private String version;
+
+        private Changes(String version) {
+            this.version = version;
+            for (String section : SECTIONS) {
+                sections.put(section, new SectionChanges());
+            }
+        }
+
+        /**
+         * 合并后到达的版本
+         */
+        public String getVersion() { return version; }
+
+        private void add(JsonObject patch) throws IOException {
+            JsonElement from = patch.get("from");
+            JsonElement to = patch.get("to");
+            if (from == null || to == null || !from.isJsonPrimitive() || !to.isJsonPrimitive()) {
+                throw new IOException("补丁缺少版本信息");
+            }
+            if (!version.equals(from.getAsString())) {
+                throw new IOException("补丁版本不衔接: 本地 " + version + "，补丁起点 " + from.getAsString());
+            }
+
+            for (Map.Entry<String, SectionChanges> section : sections.entrySet()) {
+                JsonElement changes = patch.get(section.getKey());
+                if (changes != null && changes.isJsonObject()) {
+                    section.getValue().add(changes.getAsJsonObject());
+                }
+            }
+            version = to.getAsString();
+        }
+
+        /**
+         * 把改动应用到数据上：逐条读取记录并写出，同一时刻只持有一条记录
+         * @param data 原数据
+         * @param out 写出应用后的数据，version 字段改为新版本
+         * @throws IOException 读写异常或数据格式错误时抛出
+         */
+        public void apply(Reader data, Writer out) throws IOException {
+            try {
+                JsonReader reader = new JsonReader(data);
+                JsonWriter writer = new JsonWriter(out);
+                writer.setIndent("  ");
+                Set<String> written = new HashSet<>();
+
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    SectionChanges section = sections.get(name);
+                    writer.name(name);
+                    if ("version".equals(name)) {
+                        reader.skipValue();
+                        writer.value(version);
+                    } else if (section != null && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        section.apply(reader, writer);
+                    } else if (section != null) {
+                        // 分区不是数组时按空分区处理
+                        reader.skipValue();
+                        writer.beginArray();
+                        section.writeAll(section.tail, writer);
+                        writer.endArray();
+                    } else {
+                        GSON.toJson(JsonParser.parseReader(reader), writer);
+                    }
+                    written.add(name);
+                }
+                reader.endObject();
+
+                // 原数据缺少的分区与版本补在末尾
+                for (Map.Entry<String, SectionChanges> entry : sections.entrySet()) {
+                    SectionChanges section = entry.getValue();
+                    if (!written.contains(entry.getKey()) && !section.tail.isEmpty()) {
+                        writer.name(entry.getKey());
+                        writer.beginArray();
+                        section.writeAll(section.tail, writer);
+                        writer.endArray();
+                    }
+                }
+                if (!written.contains("version")) {
+                    writer.name("version").value(version);
+                }
+                writer.endObject();
+                writer.flush();
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new IOException("本地数据格式错误: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 一个分区合并后的改动。
+     * 原数据中的id只知道改动、不知道是否存在，读到该记录时才决定原位替换还是跳过
+     */
+    private static final class SectionChanges {
+        // 原数据中已删除的id
+        private final Set<String> removed = new HashSet<>();
+        // 按加入顺序排列的写入；原数据中存在且未被删除的id原位替换，其余追加在末尾
+        private final Map<String, Put> tail = new LinkedHashMap<>();
+
+        private void add(JsonObject changes) throws IOException {
+            for (JsonElement id : array(changes, "removed")) {
+                if (!id.isJsonPrimitive()) {
+                    throw new IOException("补丁格式错误: removed 中应为id");
+                }
+                remove(id.getAsString());
+            }
+            // 修改与新增都按id写入：已有的原位替换，没有的追加
+            for (JsonElement record : array(changes, "modified")) {
+                put(record);
+            }
+            for (JsonElement record : array(changes, "added")) {
+                put(record);
+            }
+        }
+
+        private void remove(String id) {
+            Put put = tail.remove(id);
+            if (put == null || put.inPlace) {
+                removed.add(id);
+            }
+        }
+
+        private void put(JsonElement record) throws IOException {
+            String id = idOf(record);
+            Put put = tail.get(id);
+            if (put != null) {
+                put.record = record;
+            } else {
+                // 原数据中的记录被删除过，重新加入时只能追加
+                tail.put(id, new Put(record, !removed.contains(id)));
+            }
+        }
+
+        private void apply(JsonReader reader, JsonWriter writer) throws IOException {
+            Map<String, Put> pending = new LinkedHashMap<>(tail);
+            reader.beginArray();
+            writer.beginArray();
+            while (reader.hasNext()) {
+                JsonElement record = JsonParser.parseReader(reader);
+                String id = idOf(record);
+                if (removed.contains(id)) {
+                    continue;
+                }
+                Put put = pending.get(id);
+                if (put != null && put.inPlace) {
+                    pending.remove(id);
+                    record = put.record;
+                }
+                GSON.toJson(record, writer);
+            }
+            reader.endArray();
+            writeAll(pending, writer);
+            writer.endArray();
+        }
+
+        private void writeAll(Map<String, Put> puts, JsonWriter writer) {
+            for (Put put : puts.values()) {
+                GSON.toJson(put.record, writer);
+            }
+        }
+    }
+
+    private static final class Put {
+        private JsonElement record;
+        // 原数据中有该id时原位替换
+        private final boolean inPlace;
+
+        Put(JsonElement record, boolean inPlace) {
+            this.record = record;
+            this.inPlace = inPlace;
+        }
+    }
+
+    private static Iterable<JsonElement> array(JsonObject changes, String name) throws IOException {
+        JsonElement element = changes.get(name);
+        if (element == null || element.isJsonNull()) {
+            return Collections.emptyList();
+        }
+        if (!element.isJsonArray()) {
+            throw new IOException("补丁格式错误: " + name + " 应为数组");
+        }
+        return element.getAsJsonArray();
+    }
+
+    private static String idOf(JsonElement record) throws IOException {
+        JsonElement id = record.isJsonObject() ? record.getAsJsonObject().get("id") : null;
+        if (id == null || !id.isJsonPrimitive()) {
+            throw new IOException("记录缺少id字段");
+        }
+        return id.getAsString();
+    }
+}
@@ -0,0 +1,253 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkSection;
+import com.fletime.toriifind.data.LandmarkStore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 本地数据文件的二进制快照。
+ * 解析后的列式数据与文本索引（名称/拼音 n-gram 与汉字读音表）写在数据文件旁的 {@code <source>.snapshot} 中，
+ * 下次启动时内存映射读取，不再解析JSON，也不再调用拼音库和重建 n-gram 索引。
+ * 文件头之后是各段的偏移表，每个分区的数据与文本索引在第一次用到时才从各自的片段读取。
+ * 快照以数据版本与数据文件内容的 SHA-256 为键，数据文件变化后旧快照自动作废并重建。
+ */
+public class SnapshotService {
+    // "TFSN"
+    private static final int MAGIC = 0x5446534E;
+    // 快照格式变化时递增，旧格式的快照直接重建
+    private static final int FORMAT_VERSION = 4;
+    // magic、格式版本、数据文件大小、修改时间、SHA-256
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 32;
+    // 段表：零洲数据、零洲文本索引、后土数据、后土文本索引的起始偏移，以及文件末尾
+    private static final int SEGMENTS = 5;
+    private static final int TABLE_SIZE = SEGMENTS * 8;
+
+    /**
+     * 数据文件的快照键
+     */
+    public static final class Key {
+        private final long size;
+        private final long lastModified;
+        private final byte[] sha256;
+
+        private Key(long size, long lastModified, byte[] sha256) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * 数据文件内容的 SHA-256
+         */
+        public byte[] getSha256() { return sha256.clone(); }
+    }
+
+    /**
+     * 数据文件对应的快照文件路径
+     */
+    public static Path getSnapshotFile(Path dataFile) {
+        String fileName = dataFile.getFileName().toString();
+        if (fileName.endsWith(".json")) {
+            fileName = fileName.substring(0, fileName.length() - ".json".length());
+        }
+        return dataFile.resolveSibling(fileName + ".snapshot");
+    }
+
+    /**
+     * 计算数据文件当前的快照键
+     */
+    public static Key keyOf(Path dataFile) throws IOException {
+        long size = Files.size(dataFile);
+        long lastModified = Files.getLastModifiedTime(dataFile).toMillis();
+        return new Key(size, lastModified, sha256(dataFile));
+    }
+
+    /**
+     * 读取与数据文件匹配的快照：只校验文件头与段表，各分区在第一次用到时才读取
+     * @return 数据集；快照不存在、已过期或已损坏时返回 null
+     */
+    public static LandmarkDataset load(Path dataFile) {
+        Path snapshotFile = getSnapshotFile(dataFile);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            // 先用普通读取校验文件头，过期的快照不做映射，以便随后能被替换
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + TABLE_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头与段表
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE + TABLE_SIZE || header.getInt() != MAGIC
+                || header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long size = header.getLong();
+            long lastModified = header.getLong();
+            byte[] sha256 = new byte[32];
+            header.get(sha256);
+
+            // 大小与修改时间都未变时直接信任记录的摘要，否则重新计算摘要比较内容
+            if (size != Files.size(dataFile)
+                || (lastModified != Files.getLastModifiedTime(dataFile).toMillis() && !Arrays.equals(sha256, sha256(dataFile)))) {
+                System.out.println("[ToriiFind] 快照已过期，将重新解析: " + snapshotFile.getFileName());
+                return null;
+            }
+
+            // 段表须依次递增并止于文件末尾，被截断或未写完的快照在此发现
+            long[] offsets = new long[SEGMENTS];
+            long previous = HEADER_SIZE + TABLE_SIZE;
+            for (int i = 0; i < SEGMENTS; i++) {
+                offsets[i] = header.getLong();
+                if (offsets[i] < previous) {
+                    throw new IOException("快照段表损坏");
+                }
+                previous = offsets[i];
+            }
+            if (offsets[SEGMENTS - 1] != channel.size()) {
+                throw new IOException("快照数据不完整");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            String version = readString(slice(buffer, HEADER_SIZE + TABLE_SIZE, offsets[0]));
+            return new LandmarkDataset(version,
+                () -> LandmarkStore.read(slice(buffer, offsets[0], offsets[1])),
+                () -> LandmarkSection.TextIndexes.read(slice(buffer, offsets[1], offsets[2])),
+                () -> LandmarkStore.read(slice(buffer, offsets[2], offsets[3])),
+                () -> LandmarkSection.TextIndexes.read(slice(buffer, offsets[3], offsets[4])));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[ToriiFind] 读取快照失败 " + snapshotFile.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 为数据文件写出快照，尚未加载的分区会在此加载并建立文本索引（在后台线程调用，之后建立分区时复用）。
+     * 先写临时文件再原子替换，写出失败只记录日志，下次加载时回退到解析JSON。
+     * @param key 解析前计算的快照键；数据文件在解析期间被改写时放弃写出
+     */
+    public static void write(Path dataFile, Key key, LandmarkDataset dataset) {
+        Path snapshotFile = getSnapshotFile(dataFile);
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            long[] offsets = new long[SEGMENTS];
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(key.size);
+                out.writeLong(key.lastModified);
+                out.write(key.sha256);
+                // 段表先占位，写完各段后回填
+                out.write(new byte[TABLE_SIZE]);
+                writeString(out, dataset.getVersion());
+                offsets[0] = out.size();
+                dataset.getZerothStore().write(out);
+                offsets[1] = out.size();
+                dataset.getZerothText().write(out);
+                offsets[2] = out.size();
+                dataset.getHoutuStore().write(out);
+                offsets[3] = out.size();
+                dataset.getHoutuText().write(out);
+                offsets[4] = out.size();
+            }
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer table = ByteBuffer.allocate(TABLE_SIZE);
+                for (long offset : offsets) {
+                    table.putLong(offset);
+                }
+                table.flip();
+                while (table.hasRemaining()) {
+                    channel.write(table, HEADER_SIZE + table.position());
+                }
+            }
+
+            if (key.size != Files.size(dataFile) || key.lastModified != Files.getLastModifiedTime(dataFile).toMillis()) {
+                Files.deleteIfExists(tempFile);
+                return;
+            }
+            try {
+                Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // 旧快照仍被映射时部分系统不允许替换，保留旧文件，下次启动按过期处理
+            System.err.println("[ToriiFind] 写入快照失败 " + snapshotFile.getFileName() + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // 临时文件留待下次覆盖
+            }
+        }
+    }
+
+    /**
+     * 解析数据文件并重建快照（下载完成后调用）
+     */
+    public static void rebuild(Path dataFile) throws IOException {
+        Key key = keyOf(dataFile);
+        write(dataFile, key, LynnJsonService.loadDatasetFromFile(dataFile));
+    }
+
+    private static byte[] sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    // null 写为长度 -1
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length());
+        out.writeChars(value);
+    }
+
+    // [start, end) 范围的独立视图，位置从 0 开始
+    private static ByteBuffer slice(ByteBuffer buffer, long start, long end) {
+        return buffer.duplicate().position((int) start).limit((int) end).slice();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+}
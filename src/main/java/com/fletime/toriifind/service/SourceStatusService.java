@@ -5,9 +5,9 @@ import com.google.gson.JsonParser;
 import com.fletime.toriifind.config.SourceConfig;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -74,13 +74,9 @@ public class SourceStatusService {
             healthUrl += "api/landmarks?source=zth";
             
             long startTime = System.currentTimeMillis();
-            HttpURLConnection conn = (HttpURLConnection) new URL(healthUrl).openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(2000);  // 减少到2秒
-            conn.setReadTimeout(2000);     // 减少到2秒
-            conn.setRequestProperty("Accept", "application/json");
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = HttpTransport.send(
+                HttpTransport.request(healthUrl, HttpTransport.Timeout.PROBE).header("Accept", "application/json"),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
             long responseTime = System.currentTimeMillis() - startTime;
             
             if (responseCode == 200) {
@@ -133,12 +129,8 @@ public class SourceStatusService {
         
         try {
             long startTime = System.currentTimeMillis();
-            HttpURLConnection conn = (HttpURLConnection) new URL(jsonUrl).openConnection();
-            conn.setRequestMethod("HEAD");  // 使用HEAD请求减少流量
-            conn.setConnectTimeout(2000);   // 减少到2秒
-            conn.setReadTimeout(2000);      // 减少到2秒
-            
-            int responseCode = conn.getResponseCode();
+            // 使用HEAD请求减少流量
+            int responseCode = HttpTransport.head(jsonUrl, HttpTransport.Timeout.PROBE);
             long responseTime = System.currentTimeMillis() - startTime;
             
             if (responseCode == 200) {
@@ -157,19 +149,12 @@ public class SourceStatusService {
      * 获取JSON源版本信息
      */
     private static String getJsonVersion(String jsonUrl) {
-        try {
-            HttpURLConnection conn = (HttpURLConnection) new URL(jsonUrl).openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(1500);  // 减少版本检测超时
-            conn.setReadTimeout(1500);
-            
-            try (InputStream in = conn.getInputStream()) {
-                String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-                JsonObject jsonObject = JsonParser.parseString(content).getAsJsonObject();
-                
-                if (jsonObject.has("version")) {
-                    return "v" + jsonObject.get("version").getAsString();
-                }
+        // 读到根级别的version即停止，不下载整个数据文件
+        try (Reader reader = new InputStreamReader(HttpTransport.openStream(jsonUrl, HttpTransport.Timeout.PROBE),
+                StandardCharsets.UTF_8)) {
+            String version = LynnJsonService.readVersion(reader);
+            if (version != null) {
+                return "v" + version;
             }
         } catch (Exception e) {
             // 忽略版本获取错误
@@ -188,20 +173,14 @@ public class SourceStatusService {
             }
             versionUrl += "version";  // 假设API有版本端点
             
-            HttpURLConnection conn = (HttpURLConnection) new URL(versionUrl).openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(1500);  // 减少版本检测超时
-            conn.setReadTimeout(1500);
-            conn.setRequestProperty("Accept", "application/json");
-            
-            if (conn.getResponseCode() == 200) {
-                try (InputStream in = conn.getInputStream()) {
-                    String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-                    JsonObject jsonObject = JsonParser.parseString(content).getAsJsonObject();
-                    
-                    if (jsonObject.has("version")) {
-                        return "v" + jsonObject.get("version").getAsString();
-                    }
+            try (Reader reader = new InputStreamReader(HttpTransport.openStream(
+                    HttpTransport.request(versionUrl, HttpTransport.Timeout.PROBE).header("Accept", "application/json"),
+                    HttpTransport.Timeout.PROBE),
+                    StandardCharsets.UTF_8)) {
+                JsonObject jsonObject = JsonParser.parseReader(reader).getAsJsonObject();
+                
+                if (jsonObject.has("version")) {
+                    return "v" + jsonObject.get("version").getAsString();
                 }
             }
         } catch (Exception e) {
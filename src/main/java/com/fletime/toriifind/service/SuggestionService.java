@@ -0,0 +1,92 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.ToriiFind;
+import com.fletime.toriifind.config.SourceConfig;
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkSection;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.minecraft.text.Text;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 命令参数补全服务。
+ * 补全只读取内存中已加载的快照，在独立线程上完成，不会因为输入而读取文件或访问网络；
+ * 快照或分区尚未加载时返回空结果并在后台预加载。
+ */
+public class SuggestionService {
+    // 每次补全最多给出的候选数
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ToriiFind-Suggest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 补全名称参数：名称、全拼或首字母前缀匹配
+     * @param source 分区（"zeroth" 或 "houtu"）
+     */
+    public static CompletableFuture<Suggestions> suggestNames(String source, SuggestionsBuilder builder) {
+        return CompletableFuture.supplyAsync(() -> {
+            LandmarkSection section = currentSection(source);
+            String prefix = builder.getRemaining().trim();
+            if (section == null || prefix.isEmpty()) {
+                return builder.build();
+            }
+            for (int index : section.completeName(prefix, MAX_SUGGESTIONS)) {
+                builder.suggest(section.getName(index), Text.literal(section.getId(index)));
+            }
+            return builder.build();
+        }, EXECUTOR);
+    }
+
+    /**
+     * 补全编号参数：编号前缀匹配
+     * @param source 分区（"zeroth" 或 "houtu"）
+     */
+    public static CompletableFuture<Suggestions> suggestIds(String source, SuggestionsBuilder builder) {
+        return CompletableFuture.supplyAsync(() -> {
+            LandmarkSection section = currentSection(source);
+            if (section == null) {
+                return builder.build();
+            }
+            for (int index : section.completeId(builder.getRemaining(), MAX_SUGGESTIONS)) {
+                builder.suggest(section.getId(index), Text.literal(section.getName(index)));
+            }
+            return builder.build();
+        }, EXECUTOR);
+    }
+
+    // 当前数据源已建立索引的分区，未加载时触发后台预加载并返回 null
+    private static LandmarkSection currentSection(String source) {
+        String sourceName = ToriiFind.getCurrentSourceName();
+        SourceConfig.DataSource dataSource = ToriiFind.getAllSources().get(sourceName);
+        if (dataSource != null && dataSource.isApiMode()) {
+            return null;
+        }
+
+        LandmarkDataset dataset = DatasetCache.peek(sourceName);
+        if (dataset == null) {
+            DatasetCache.preload(sourceName);
+            return null;
+        }
+        LandmarkSection section = dataset.peekSection(source);
+        if (section == null) {
+            // 分区尚未建立索引，排在本次补全之后加载
+            EXECUTOR.execute(() -> {
+                try {
+                    dataset.getSection(source);
+                } catch (UncheckedIOException e) {
+                    System.err.println("[ToriiFind] 预加载分区失败 " + source + ": " + e.getCause().getMessage());
+                }
+            });
+        }
+        return section;
+    }
+}
@@ -0,0 +1,367 @@
+package com.fletime.toriifind.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 直接在 UTF-8 字节上工作的 JSON 词法扫描器，配合整体读入的数据文件使用。
+ * 扫描时只记录当前词法单元的字节范围，字符串由调用方按需解码或直接复制字节；
+ * 不含转义的字符串以原缓冲区的视图返回，不产生堆上的副本。
+ * 只实现读取数据文件所需的部分，对多余的逗号等宽松处理。
+ */
+final class Utf8JsonScanner {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int pos;
+
+    // 当前词法单元：[tokenStart, tokenEnd)，字符串不含引号
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenQuoted;
+    private boolean tokenEscaped;
+
+    // 含转义的字符串去转义后的字节
+    private byte[] scratch = new byte[64];
+
+    Utf8JsonScanner(ByteBuffer buffer) {
+        this(buffer, buffer.position());
+        // 跳过 UTF-8 BOM
+        if (limit - pos >= 3 && buffer.get(pos) == (byte) 0xEF && buffer.get(pos + 1) == (byte) 0xBB
+            && buffer.get(pos + 2) == (byte) 0xBF) {
+            pos += 3;
+        }
+    }
+
+    /**
+     * 从 position 处开始扫描，用于回到先前由 {@link #position()} 记下的值
+     */
+    Utf8JsonScanner(ByteBuffer buffer, int position) {
+        this.buffer = buffer;
+        this.pos = position;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * 当前的字节偏移
+     */
+    int position() {
+        return pos;
+    }
+
+    void beginObject() throws IOException { expect('{'); }
+
+    void endObject() throws IOException { expect('}'); }
+
+    void beginArray() throws IOException { expect('['); }
+
+    void endArray() throws IOException { expect(']'); }
+
+    /**
+     * 当前对象或数组中是否还有元素（同时跳过元素间的逗号）
+     */
+    boolean hasNext() throws IOException {
+        byte b = peek();
+        if (b == ',') {
+            pos++;
+            b = peek();
+        }
+        return b != '}' && b != ']';
+    }
+
+    /**
+     * 下一个值是否为 JSON 对象
+     */
+    boolean isObject() throws IOException {
+        return peek() == '{';
+    }
+
+    /**
+     * 读取字段名并越过冒号，之后可用 {@link #nameEquals} 比较
+     */
+    void nextName() throws IOException {
+        readString();
+        expect(':');
+    }
+
+    /**
+     * 当前字段名是否为给定的 ASCII 名称，不解码
+     */
+    boolean nameEquals(byte[] name) {
+        if (tokenEscaped) {
+            return new String(name, StandardCharsets.US_ASCII).equals(tokenString());
+        }
+        if (tokenEnd - tokenStart != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(tokenStart + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取一个字符串、数字或字面量（true/false/null）作为当前词法单元
+     * @throws IOException 下一个值是对象或数组时抛出
+     */
+    void nextValue() throws IOException {
+        byte b = peek();
+        if (b == '"') {
+            readString();
+        } else if (b == '{' || b == '[') {
+            throw error("此处应为字符串或数字");
+        } else {
+            readLiteral();
+        }
+    }
+
+    /**
+     * 当前词法单元是否为 null 字面量
+     */
+    boolean isNull() {
+        return !tokenQuoted && tokenEnd - tokenStart == 4 && buffer.get(tokenStart) == 'n';
+    }
+
+    /**
+     * 当前词法单元是否为字符串或数字（不是 true/false/null）
+     */
+    boolean isPrimitive() {
+        if (tokenQuoted) {
+            return true;
+        }
+        byte b = buffer.get(tokenStart);
+        return b == '-' || (b >= '0' && b <= '9');
+    }
+
+    /**
+     * 当前词法单元去转义后的 UTF-8 字节；不含转义时为原缓冲区的视图，只在下一次读取前有效
+     */
+    ByteBuffer tokenBytes() {
+        if (!tokenEscaped) {
+            return buffer.slice(tokenStart, tokenEnd - tokenStart);
+        }
+        return ByteBuffer.wrap(scratch, 0, unescape());
+    }
+
+    /**
+     * 当前词法单元解码后的字符串
+     */
+    String tokenString() {
+        if (tokenEscaped) {
+            return new String(scratch, 0, unescape(), StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[tokenEnd - tokenStart];
+        buffer.get(tokenStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 当前词法单元的数值；带引号的数字同样接受，无法解析（如 "Unknown"、null）时为 NaN
+     */
+    double tokenDouble() {
+        // 常见的整数坐标直接按字节换算，不生成字符串
+        int i = tokenStart;
+        boolean negative = i < tokenEnd && buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i < tokenEnd && tokenEnd - i <= 15 && !tokenEscaped) {
+            long value = 0;
+            for (; i < tokenEnd; i++) {
+                byte b = buffer.get(i);
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                value = value * 10 + (b - '0');
+            }
+            if (i == tokenEnd) {
+                return negative ? -value : value;
+            }
+        }
+        // 非数字开头（"Unknown"、null 等）不必尝试解析
+        byte first = tokenEnd > tokenStart ? buffer.get(tokenStart) : 0;
+        if (first != '-' && first != '+' && first != '.' && (first < '0' || first > '9')) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(tokenString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 跳过下一个值，对象与数组只按字节扫描括号，不解析内容
+     */
+    void skipValue() throws IOException {
+        byte b = peek();
+        if (b == '"') {
+            readString();
+            return;
+        }
+        if (b != '{' && b != '[') {
+            readLiteral();
+            return;
+        }
+
+        int depth = 0;
+        while (pos < limit) {
+            b = buffer.get(pos);
+            if (b == '"') {
+                readString();
+                continue;
+            }
+            pos++;
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && --depth == 0) {
+                return;
+            }
+        }
+        throw error("数据不完整");
+    }
+
+    private void readString() throws IOException {
+        expect('"');
+        tokenStart = pos;
+        tokenQuoted = true;
+        tokenEscaped = false;
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == '"') {
+                tokenEnd = pos++;
+                return;
+            }
+            if (b == '\\') {
+                tokenEscaped = true;
+                pos++;
+            }
+            pos++;
+        }
+        throw error("字符串未结束");
+    }
+
+    private void readLiteral() throws IOException {
+        tokenStart = pos;
+        tokenQuoted = false;
+        tokenEscaped = false;
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                break;
+            }
+            pos++;
+        }
+        tokenEnd = pos;
+        if (tokenEnd == tokenStart) {
+            throw error("此处应为值");
+        }
+    }
+
+    // 把当前字符串去转义写入 scratch，返回字节数
+    private int unescape() {
+        int length = 0;
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            if (length + 4 > scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            byte b = buffer.get(i);
+            if (b != '\\' || i + 1 >= tokenEnd) {
+                scratch[length++] = b;
+                continue;
+            }
+            byte escape = buffer.get(++i);
+            switch (escape) {
+                case 'n': scratch[length++] = '\n'; break;
+                case 't': scratch[length++] = '\t'; break;
+                case 'r': scratch[length++] = '\r'; break;
+                case 'b': scratch[length++] = '\b'; break;
+                case 'f': scratch[length++] = '\f'; break;
+                case 'u':
+                    int codePoint = hex(i + 1);
+                    i += 4;
+                    // 代理对由两个 \\u 转义组成
+                    if (Character.isHighSurrogate((char) codePoint) && i + 6 < tokenEnd
+                        && buffer.get(i + 1) == '\\' && buffer.get(i + 2) == 'u') {
+                        int low = hex(i + 3);
+                        if (Character.isLowSurrogate((char) low)) {
+                            codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                            i += 6;
+                        }
+                    }
+                    length = appendUtf8(codePoint, length);
+                    break;
+                default:
+                    // \" \\ \/ 以及不认识的转义都按字面保留被转义的字符
+                    scratch[length++] = escape;
+            }
+        }
+        return length;
+    }
+
+    private int hex(int start) {
+        if (start + 4 > tokenEnd) {
+            return '?';
+        }
+        int value = 0;
+        for (int i = start; i < start + 4; i++) {
+            int digit = Character.digit(buffer.get(i), 16);
+            if (digit < 0) {
+                return '?';
+            }
+            value = value * 16 + digit;
+        }
+        return value;
+    }
+
+    private int appendUtf8(int codePoint, int length) {
+        if (Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+            // 落单的代理项无法编码
+            codePoint = '?';
+        }
+        if (codePoint < 0x80) {
+            scratch[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            scratch[length++] = (byte) (0xC0 | (codePoint >> 6));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            scratch[length++] = (byte) (0xE0 | (codePoint >> 12));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    private byte peek() throws IOException {
+        while (pos < limit && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        if (pos >= limit) {
+            throw error("数据不完整");
+        }
+        return buffer.get(pos);
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw error("此处应为 '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private IOException error(String message) {
+        return new IOException("数据解析失败: " + message + "（字节偏移 " + pos + "）");
+    }
+}
@@ -0,0 +1,119 @@
+package com.fletime.toriifind.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LandmarkFilterTest {
+    private static final String[] GRADES = {"白级", "标居", "赤居"};
+    private static final String[] STATUSES = {"Normal", "Locked", "locked", "Destroyed"};
+    // 条件中可能出现的取值：大小写变体与数据中没有的取值
+    private static final String[] GRADE_VALUES = {"白级", "标居", "赤居", "紫级"};
+    private static final String[] STATUS_VALUES = {"Normal", "normal", "LOCKED", "Destroyed", "Missing"};
+
+    @Test
+    void selectMatchesBruteForce() {
+        Random random = new Random(21);
+        LandmarkSection section = randomSection(random, "zeroth", 400);
+
+        for (int q = 0; q < 500; q++) {
+            List<String> tokens = new ArrayList<>();
+            for (int t = random.nextInt(4); t > 0; t--) {
+                boolean grade = random.nextBoolean();
+                String[] values = grade ? GRADE_VALUES : STATUS_VALUES;
+                tokens.add((grade ? "grade:" : "status:") + (random.nextInt(3) == 0 ? "!" : "")
+                    + values[random.nextInt(values.length)]);
+            }
+            String text = String.join(" ", tokens);
+            LandmarkFilter filter = LandmarkFilter.parse(text);
+
+            BitSet expected = new BitSet();
+            for (int i = 0; i < section.size(); i++) {
+                if (bruteForce(tokens, section.getStore().getGrade(i), section.getStore().getStatus(i))) {
+                    expected.set(i);
+                }
+            }
+            BitSet selected = filter.select(section);
+            assertEquals(expected, selected != null ? selected : all(section.size()), text);
+            for (int i = 0; i < section.size(); i++) {
+                assertEquals(expected.get(i), filter.test(section.get(i)), text);
+            }
+        }
+    }
+
+    @Test
+    void unknownValueMatchesNothingAndIsNotRecorded() {
+        LandmarkSection section = randomSection(new Random(23), "houtu", 50);
+        LandmarkFilter filter = LandmarkFilter.parse("grade:不存在的等级");
+
+        assertTrue(filter.select(section).isEmpty());
+        assertTrue(ValueDictionary.GRADES.lookupIgnoreCase("不存在的等级").isEmpty());
+    }
+
+    @Test
+    void valuesLoadedAfterParsingStillMatch() {
+        LandmarkFilter filter = LandmarkFilter.parse("status:ReBuilding");
+        LandmarkStore.Builder builder = new LandmarkStore.Builder();
+        builder.add("1", "星海镇", "白级", "Rebuilding", "0", "64", "0");
+        builder.add("2", "冷冽谷", "白级", "Normal", "0", "64", "0");
+        LandmarkSection section = new LandmarkSection("zeroth", builder.build());
+
+        BitSet expected = new BitSet();
+        expected.set(0);
+        assertEquals(expected, filter.select(section));
+    }
+
+    @Test
+    void datasetConditionSelectsWholeSection() {
+        LandmarkSection section = randomSection(new Random(29), "houtu", 30);
+        assertTrue(LandmarkFilter.parse("dataset:zeroth").select(section).isEmpty());
+        assertEquals(all(30), LandmarkFilter.parse("dataset:houtu").select(section));
+        assertTrue(LandmarkFilter.parse("dataset:!houtu").select(section).isEmpty());
+    }
+
+    // 同一字段的肯定条件取并集，否定条件全部满足，取值忽略大小写
+    private static boolean bruteForce(List<String> tokens, String grade, String status) {
+        boolean hasGrade = false, gradeMatched = false, hasStatus = false, statusMatched = false;
+        for (String token : tokens) {
+            boolean isGrade = token.startsWith("grade:");
+            String value = token.substring(token.indexOf(':') + 1);
+            boolean negated = value.startsWith("!");
+            value = negated ? value.substring(1) : value;
+            boolean equal = value.equalsIgnoreCase(isGrade ? grade : status);
+            if (negated && equal) {
+                return false;
+            }
+            if (!negated) {
+                if (isGrade) {
+                    hasGrade = true;
+                    gradeMatched |= equal;
+                } else {
+                    hasStatus = true;
+                    statusMatched |= equal;
+                }
+            }
+        }
+        return (!hasGrade || gradeMatched) && (!hasStatus || statusMatched);
+    }
+
+    private static LandmarkSection randomSection(Random random, String dataset, int size) {
+        LandmarkStore.Builder builder = new LandmarkStore.Builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(String.valueOf(i + 1), "地标" + i, GRADES[random.nextInt(GRADES.length)],
+                STATUSES[random.nextInt(STATUSES.length)], "0", "64", "0");
+        }
+        return new LandmarkSection(dataset, builder.build());
+    }
+
+    private static BitSet all(int size) {
+        BitSet all = new BitSet();
+        all.set(0, size);
+        return all;
+    }
+}
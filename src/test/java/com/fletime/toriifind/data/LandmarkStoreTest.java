@@ -0,0 +1,144 @@
+package com.fletime.toriifind.data;
+
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LandmarkStoreTest {
+    private static final String[] GRADES = {"白级", "标居", "赤居"};
+    private static final String[] STATUSES = {"Normal", "Abandoned"};
+    // 含多字节与代理对字符，检验按字节偏移切分
+    private static final String[] NAME_PARTS = {"星海", "镇", "a", "𠀀", "", " "};
+
+    @Test
+    void columnsMatchTheRecords() throws IOException {
+        Random random = new Random(19);
+        List<Record> records = new ArrayList<>();
+        LandmarkStore.Builder builder = new LandmarkStore.Builder();
+        for (int i = 0; i < 500; i++) {
+            Record record = Record.random(random, i);
+            records.add(record);
+            if (random.nextBoolean()) {
+                builder.add(record.id, record.name, record.grade, record.status, record.xText, record.yText, record.zText);
+            } else {
+                builder.add(utf8(record.id), utf8(record.name), record.grade, record.status,
+                    record.known ? record.x : Double.NaN, record.known ? record.y : Double.NaN, record.z);
+            }
+        }
+        LandmarkStore store = builder.build();
+        assertRecords(records, store);
+
+        // 写出再从非零偏移读回
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(3);
+            store.write(out);
+            out.writeInt(99);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.getShort();
+        LandmarkStore read = LandmarkStore.read(buffer);
+        assertEquals(99, buffer.getInt());
+        assertRecords(records, read);
+    }
+
+    @Test
+    void unparsableCoordinatesAreUnknown() {
+        LandmarkStore store = new LandmarkStore.Builder()
+            .add("1", "a", "白级", "Normal", "12", "x", "3")
+            .add("2", "b", "白级", "Normal", "Unknown", "64", "3")
+            .add("3", "c", "白级", "Normal", "1.5", "64", "-3")
+            .build();
+        assertEquals("Unknown", store.materialize(0).getCoordinates().getX());
+        assertEquals("Unknown", store.materialize(1).getCoordinates().getX());
+        assertEquals("1.5", store.materialize(2).getCoordinates().getX());
+        assertEquals("-3", store.materialize(2).getCoordinates().getZ());
+    }
+
+    @Test
+    void truncatedDataIsRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new LandmarkStore.Builder().add("1", "星海镇", "白级", "Normal", "1", "2", "3").build().write(out);
+        }
+        byte[] data = bytes.toByteArray();
+        assertThrows(IOException.class, () -> LandmarkStore.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 2))));
+    }
+
+    private static void assertRecords(List<Record> records, LandmarkStore store) {
+        assertEquals(records.size(), store.size());
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            assertEquals(record.id, store.getId(i));
+            assertEquals(record.name, store.getName(i));
+            assertEquals(record.grade, store.getGrade(i));
+            assertEquals(record.status, store.getStatus(i));
+            assertEquals(ValueDictionary.GRADES.encode(record.grade), store.getGradeCode(i));
+            assertEquals(record.known, store.hasCoordinates(i));
+
+            LynnLandmark landmark = store.materialize(i);
+            assertEquals(record.id, landmark.getId());
+            assertEquals(record.name, landmark.getName());
+            if (record.known) {
+                assertEquals(record.x, store.getX(i));
+                assertEquals(record.y, store.getY(i));
+                assertEquals(record.z, store.getZ(i));
+                assertEquals(record.xText, landmark.getCoordinates().getX());
+            } else {
+                assertEquals("Unknown", landmark.getCoordinates().getX());
+            }
+        }
+    }
+
+    private static ByteBuffer utf8(String value) {
+        // 带前后缀的缓冲区，只应读取 position 到 limit 之间的字节
+        byte[] bytes = ("##" + value + "##").getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.wrap(bytes, 2, bytes.length - 4);
+    }
+
+    private static final class Record {
+        String id;
+        String name;
+        String grade;
+        String status;
+        boolean known;
+        double x;
+        double y;
+        double z;
+        String xText;
+        String yText;
+        String zText;
+
+        static Record random(Random random, int index) {
+            Record record = new Record();
+            record.id = random.nextBoolean() ? String.valueOf(index) : "H-" + index;
+            StringBuilder name = new StringBuilder();
+            for (int k = random.nextInt(4); k >= 0; k--) {
+                name.append(NAME_PARTS[random.nextInt(NAME_PARTS.length)]);
+            }
+            record.name = name.toString();
+            record.grade = GRADES[random.nextInt(GRADES.length)];
+            record.status = STATUSES[random.nextInt(STATUSES.length)];
+            record.known = random.nextInt(4) != 0;
+            record.x = random.nextInt(20000) - 10000;
+            record.y = random.nextInt(256);
+            record.z = random.nextInt(20000) - 10000;
+            record.xText = record.known ? String.valueOf((long) record.x) : "Unknown";
+            record.yText = String.valueOf((long) record.y);
+            record.zText = String.valueOf((long) record.z);
+            return record;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.fletime.toriifind.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValueDictionaryTest {
+    // 字典是全局的，测试用的取值加上前缀，避免与其他测试互相影响
+    private static final String PREFIX = "dict-test-";
+
+    @Test
+    void encodeIsStableAndDecodes() {
+        int code = ValueDictionary.GRADES.encode(PREFIX + "白级");
+        assertEquals(code, ValueDictionary.GRADES.encode(PREFIX + "白级"));
+        assertEquals(PREFIX + "白级", ValueDictionary.GRADES.decode(code));
+        assertTrue(code != ValueDictionary.GRADES.encode(PREFIX + "标居"));
+    }
+
+    @Test
+    void lookupMatchesBruteForce() {
+        String[] values = {PREFIX + "Normal", PREFIX + "NORMAL", PREFIX + "normal", PREFIX + "Abandoned"};
+        int[] codes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            codes[i] = ValueDictionary.STATUSES.encode(values[i]);
+        }
+
+        for (String query : new String[]{PREFIX + "nORMAL", PREFIX + "abandoned", PREFIX + "missing"}) {
+            BitSet expected = new BitSet();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i].equalsIgnoreCase(query)) {
+                    expected.set(codes[i]);
+                }
+            }
+            assertEquals(expected, ValueDictionary.STATUSES.lookupIgnoreCase(query), query);
+        }
+    }
+
+    @Test
+    void lookupDoesNotAddValues() {
+        int before = ValueDictionary.GRADES.encode(PREFIX + "before-typo");
+        assertTrue(ValueDictionary.GRADES.lookupIgnoreCase(PREFIX + "typo").isEmpty());
+        // 查询过的取值没有占用编码
+        assertEquals(before + 1, ValueDictionary.GRADES.encode(PREFIX + "after-typo"));
+        assertTrue(ValueDictionary.GRADES.lookupIgnoreCase(PREFIX + "typo").isEmpty());
+    }
+
+    @Test
+    void concurrentEncodingAgreesOnCodes() throws Exception {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            values.add(PREFIX + "concurrent-" + i);
+        }
+        Map<String, Integer> seen = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 2000; i++) {
+                        String value = values.get(random.nextInt(values.size()));
+                        int code = ValueDictionary.GRADES.encode(value);
+                        // 拿到编码的线程一定能解码
+                        assertEquals(value, ValueDictionary.GRADES.decode(code));
+                        Integer previous = seen.putIfAbsent(value, code);
+                        assertEquals(previous == null ? code : previous, code);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(values.size(), seen.values().stream().distinct().count());
+    }
+}
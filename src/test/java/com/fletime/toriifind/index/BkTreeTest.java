@@ -0,0 +1,63 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BkTreeTest {
+    private static final char[] ALPHABET = {'a', 'b', 'c', '星', '海'};
+
+    @Test
+    void distanceMatchesKnownValues() {
+        assertEquals(0, BkTree.distance("星海镇", "星海镇"));
+        assertEquals(3, BkTree.distance("kitten", "sitting"));
+        assertEquals(3, BkTree.distance("", "abc"));
+        assertEquals(1, BkTree.distance("星海镇", "星海村"));
+    }
+
+    @Test
+    void matchesBruteForceScan() {
+        Random random = new Random(11);
+        String[] terms = new String[400];
+        BkTree tree = new BkTree();
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = randomString(random, 1 + random.nextInt(6));
+            tree.add(terms[i], i);
+        }
+
+        for (int q = 0; q < 300; q++) {
+            String query = randomString(random, 1 + random.nextInt(6));
+            int maxDistance = random.nextInt(3);
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < terms.length; i++) {
+                int distance = BkTree.distance(query, terms[i]);
+                if (distance <= maxDistance) {
+                    expected.put(i, distance);
+                }
+            }
+            assertEquals(expected, tree.search(query, maxDistance, Long.MAX_VALUE / 2), () -> "query: " + query);
+        }
+    }
+
+    @Test
+    void sameTermKeepsEveryId() {
+        BkTree tree = new BkTree();
+        tree.add("星海", 1);
+        tree.add("星海", 4);
+        tree.add("", 5);
+        assertEquals(Map.of(1, 1, 4, 1), tree.search("星河", 1, Long.MAX_VALUE / 2));
+        assertEquals(Map.of(), tree.search("", 3, Long.MAX_VALUE / 2));
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FacetIndexTest {
+    @Test
+    void matchesBruteForceScan() {
+        Random random = new Random(23);
+        for (int round = 0; round < 100; round++) {
+            int size = random.nextInt(300);
+            int[] codes = new int[size + 5];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = random.nextInt(6);
+            }
+            // 只有前 size 条是有效记录
+            FacetIndex index = FacetIndex.build(codes, size);
+
+            BitSet wanted = new BitSet();
+            for (int code = 0; code < 8; code++) {
+                if (random.nextBoolean()) {
+                    wanted.set(code);
+                }
+            }
+            BitSet within = new BitSet();
+            for (int i = 0; i < size; i++) {
+                if (random.nextBoolean()) {
+                    within.set(i);
+                }
+            }
+
+            BitSet expectedUnion = new BitSet();
+            int[] expectedCounts = new int[6];
+            int[] expectedAll = new int[6];
+            for (int i = 0; i < size; i++) {
+                if (wanted.get(codes[i])) {
+                    expectedUnion.set(i);
+                }
+                if (within.get(i)) {
+                    expectedCounts[codes[i]]++;
+                }
+                expectedAll[codes[i]]++;
+                assertTrue(index.get(codes[i]).get(i));
+            }
+            assertEquals(expectedUnion, index.union(wanted));
+            assertArrayEquals(trim(expectedCounts, index.counts(within).length), index.counts(within));
+            assertArrayEquals(trim(expectedAll, index.counts(null).length), index.counts(null));
+        }
+    }
+
+    @Test
+    void unknownCodeIsEmpty() {
+        FacetIndex index = FacetIndex.build(new int[]{0, 2}, 2);
+        assertTrue(index.get(1).isEmpty());
+        assertTrue(index.get(7).isEmpty());
+    }
+
+    // 计数数组只延伸到出现过的最大编码
+    private static int[] trim(int[] counts, int length) {
+        for (int code = length; code < counts.length; code++) {
+            assertEquals(0, counts[code]);
+        }
+        return Arrays.copyOf(counts, length);
+    }
+}
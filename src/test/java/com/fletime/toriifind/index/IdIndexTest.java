@@ -0,0 +1,106 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class IdIndexTest {
+    private static final String[] PREFIXES = {"", "", "C-", "C-A", "H"};
+
+    @Test
+    void lookupMatchesBruteForce() {
+        Random random = new Random(31);
+        String[] ids = new String[400];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = randomId(random);
+        }
+        IdIndex index = IdIndex.build(ids);
+
+        List<String> queries = new ArrayList<>();
+        for (int q = 0; q < 1500; q++) {
+            int kind = random.nextInt(4);
+            if (kind == 0) {
+                queries.add(ids[random.nextInt(ids.length)]);
+            } else if (kind == 1) {
+                queries.add(randomId(random));
+            } else if (kind == 2) {
+                queries.add(PREFIXES[random.nextInt(PREFIXES.length)] + random.nextInt(60) + "-" + random.nextInt(60));
+            } else {
+                // 编号前缀或其开头部分
+                String prefix = PREFIXES[random.nextInt(PREFIXES.length)];
+                queries.add(prefix.substring(0, random.nextInt(prefix.length() + 1)));
+            }
+        }
+        for (String query : queries) {
+            if (query.isEmpty()) continue;
+            assertArrayEquals(bruteForce(ids, query), index.lookup(query), () -> "query: " + query);
+        }
+    }
+
+    @Test
+    void rangeBoundsAreInclusiveAndOrderedByNumber() {
+        String[] ids = {"120", "12", "3", "112", "C-5", "05"};
+        IdIndex index = IdIndex.build(ids);
+        assertArrayEquals(new int[]{2, 5, 1}, index.lookup("3-12"));
+        assertArrayEquals(new int[]{2, 5, 1}, index.lookup("12-3"));
+        // 同数字视为同一编号，"12" 不会命中 "112"、"120"
+        assertArrayEquals(new int[]{5}, index.lookup("5"));
+        assertArrayEquals(new int[]{1}, index.lookup("12"));
+        assertArrayEquals(null, index.lookup("11"));
+    }
+
+    // 按 lookup 的定义逐条比较：区间 -> 精确 -> 同前缀同数字 -> 编号前缀
+    private static int[] bruteForce(String[] ids, String query) {
+        Matcher range = Pattern.compile("^(.*?)(\\d{1,18})-(\\d{1,18})$").matcher(query);
+        if (range.matches()) {
+            long from = Long.parseLong(range.group(2));
+            long to = Long.parseLong(range.group(3));
+            String prefix = range.group(1);
+            return sorted(ids, i -> prefixOf(ids[i]).equals(prefix)
+                && numberOf(ids[i]) >= Math.min(from, to) && numberOf(ids[i]) <= Math.max(from, to));
+        }
+        int[] exact = IntStream.range(0, ids.length).filter(i -> ids[i].equals(query)).toArray();
+        if (exact.length > 0) {
+            return exact;
+        }
+        if (numberOf(query) >= 0) {
+            int[] same = sorted(ids, i -> prefixOf(ids[i]).equals(prefixOf(query)) && numberOf(ids[i]) == numberOf(query));
+            return same.length > 0 ? same : null;
+        }
+        int[] byPrefix = sorted(ids, i -> prefixOf(ids[i]).startsWith(query));
+        return byPrefix.length > 0 ? byPrefix : null;
+    }
+
+    private static int[] sorted(String[] ids, IntPredicate filter) {
+        return IntStream.range(0, ids.length).filter(filter).boxed()
+            .sorted(Comparator.<Integer, String>comparing(i -> prefixOf(ids[i])).thenComparingLong(i -> numberOf(ids[i])))
+            .mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String prefixOf(String id) {
+        return id.replaceAll("\\d+$", "");
+    }
+
+    private static long numberOf(String id) {
+        String digits = id.substring(prefixOf(id).length());
+        return digits.isEmpty() ? -1 : Long.parseLong(digits);
+    }
+
+    private static String randomId(Random random) {
+        String prefix = PREFIXES[random.nextInt(PREFIXES.length)];
+        if (random.nextInt(10) == 0) {
+            return prefix + "X";
+        }
+        String number = String.valueOf(random.nextInt(60));
+        return prefix + (random.nextInt(5) == 0 ? "0" + number : number);
+    }
+}
@@ -0,0 +1,99 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NgramIndexTest {
+    // 相邻码位的字符容易暴露键冲突
+    private static final char[] ALPHABET = {'`', 'a', 'b', 'c', '星' - 1, '星', '海', '镇', '村', ' '};
+
+    @Test
+    void adjacentCharactersDoNotCollide() {
+        String[] names = {"ab", "星海镇", "冷冽谷"};
+        NgramIndex index = NgramIndex.build(names);
+
+        assertArrayEquals(new int[0], index.search("`b", i -> names[i]));
+        assertArrayEquals(new int[0], index.search((char) ('星' - 1) + "海", i -> names[i]));
+        assertArrayEquals(new int[]{0}, index.search("ab", i -> names[i]));
+        assertArrayEquals(new int[]{1}, index.search("星海", i -> names[i]));
+    }
+
+    @Test
+    void matchesBruteForceContains() {
+        Random random = new Random(42);
+        String[] names = new String[500];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = randomString(random, 1 + random.nextInt(8));
+        }
+        NgramIndex index = NgramIndex.build(names);
+
+        for (int q = 0; q < 3000; q++) {
+            String keyword = randomString(random, random.nextInt(5));
+            int[] expected = IntStream.range(0, names.length).filter(i -> names[i].contains(keyword)).toArray();
+            assertArrayEquals(expected, index.search(keyword, i -> names[i]), () -> "keyword: " + keyword);
+        }
+    }
+
+    @Test
+    void repeatedGramsAreListedOnce() {
+        String[] names = {"村村村", "海村"};
+        int[] hits = NgramIndex.build(names).search("村村", i -> names[i]);
+        assertArrayEquals(new int[]{0}, hits, Arrays.toString(hits));
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws IOException {
+        Random random = new Random(9);
+        String[] names = new String[200];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = randomString(random, 1 + random.nextInt(6));
+        }
+        NgramIndex index = NgramIndex.build(names);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(7);
+            index.write(out);
+            out.writeInt(42);
+        }
+        // 从非对齐的偏移处读取，之后的位置应紧接着索引
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.get();
+        NgramIndex read = NgramIndex.read(buffer);
+        assertEquals(42, buffer.getInt());
+
+        for (int q = 0; q < 1000; q++) {
+            String keyword = randomString(random, random.nextInt(4));
+            assertArrayEquals(index.candidates(keyword), read.candidates(keyword), () -> "keyword: " + keyword);
+        }
+    }
+
+    @Test
+    void truncatedDataIsRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            NgramIndex.build(new String[]{"星海镇", "冷冽谷"}).write(out);
+        }
+        byte[] data = bytes.toByteArray();
+        assertThrows(IOException.class, () -> NgramIndex.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 3))));
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+}
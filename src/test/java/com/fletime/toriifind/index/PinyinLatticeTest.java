@@ -0,0 +1,132 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PinyinLatticeTest {
+    // 含多音字、空白与拉丁字母
+    private static final char[] ALPHABET = {'长', '安', '城', '行', '重', '庆', '乐', '星', '海', '镇', ' ', 'A', 'x'};
+
+    @Test
+    void matchesFullPinyinAndAbbreviations() {
+        PinyinLattice lattice = PinyinLattice.of("长安城");
+        assertTrue(lattice.matches("changancheng"));
+        assertTrue(lattice.matches("zhanganc"));
+        assertTrue(lattice.matches("zac"));
+        assertTrue(lattice.matches("anch"));
+        assertFalse(lattice.matches("ngc"));
+        assertFalse(lattice.matches("cax"));
+    }
+
+    @Test
+    void matchesBruteForceOverAllReadings() {
+        Random random = new Random(7);
+        for (int n = 0; n < 200; n++) {
+            String name = randomName(random);
+            PinyinLattice lattice = PinyinLattice.of(name);
+            for (int q = 0; q < 40; q++) {
+                String query = randomQuery(random, lattice);
+                assertEquals(bruteForce(lattice, query), lattice.matches(query), () -> name + " / " + query);
+            }
+        }
+    }
+
+    @Test
+    void pinyinCandidatesNeverMissAMatch() {
+        Random random = new Random(11);
+        PinyinIndex[] pinyin = new PinyinIndex[300];
+        for (int i = 0; i < pinyin.length; i++) {
+            pinyin[i] = PinyinIndex.of(randomName(random));
+        }
+        NgramIndex index = NgramIndex.buildPinyin(pinyin);
+
+        for (int q = 0; q < 2000; q++) {
+            String query = randomQuery(random, pinyin[random.nextInt(pinyin.length)].getLattice());
+            int[] expected = IntStream.range(0, pinyin.length).filter(i -> pinyin[i].matches(query)).toArray();
+            int[] actual = IntStream.of(index.candidates(query)).filter(i -> pinyin[i].matches(query)).toArray();
+            assertArrayEquals(expected, actual, () -> "query: " + query);
+        }
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = 1 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+
+    // 一半取自名称某组读音拼接后的片段，一半是随机字母
+    private static String randomQuery(Random random, PinyinLattice lattice) {
+        if (random.nextBoolean()) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < lattice.length(); i++) {
+                String[] readings = lattice.syllables(i);
+                if (readings.length == 0) continue;
+                String reading = readings[random.nextInt(readings.length)];
+                builder.append(random.nextBoolean() ? reading : reading.substring(0, 1 + random.nextInt(reading.length())));
+            }
+            if (builder.length() > 0) {
+                int from = random.nextInt(builder.length());
+                int to = from + 1 + random.nextInt(builder.length() - from);
+                return builder.substring(from, to);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        int length = 1 + random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            builder.append("achngixz".charAt(random.nextInt(8)));
+        }
+        return builder.toString();
+    }
+
+    // 按定义枚举：起点可以是某个读音的任意位置，之后每个字符取某个读音的非空前缀；
+    // 从音节中间开始的片段必须读完该音节才能进入下一个字符
+    private static boolean bruteForce(PinyinLattice lattice, String query) {
+        List<String[]> chars = new ArrayList<>();
+        for (int i = 0; i < lattice.length(); i++) {
+            if (lattice.syllables(i).length > 0) {
+                chars.add(lattice.syllables(i));
+            }
+        }
+        for (int j = 0; j < chars.size(); j++) {
+            for (String reading : chars.get(j)) {
+                for (int from = 0; from < reading.length(); from++) {
+                    for (int to = from + 1; to <= reading.length(); to++) {
+                        String segment = reading.substring(from, to);
+                        if (!query.startsWith(segment)) continue;
+                        if (segment.length() == query.length()) return true;
+                        if ((from == 0 || to == reading.length()) && prefixes(chars, j + 1, query.substring(segment.length()))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean prefixes(List<String[]> chars, int j, String rest) {
+        if (j >= chars.size()) return false;
+        for (String reading : chars.get(j)) {
+            for (int to = 1; to <= reading.length(); to++) {
+                String prefix = reading.substring(0, to);
+                if (!rest.startsWith(prefix)) continue;
+                if (prefix.length() == rest.length() || prefixes(chars, j + 1, rest.substring(to))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class PrefixIndexTest {
+    private static final char[] ALPHABET = {'a', 'B', 'c', '星', '海'};
+
+    @Test
+    void matchesBruteForceScan() {
+        Random random = new Random(13);
+        // 词条总数小于单次扫描上限，结果不会被截断
+        int count = 400;
+        String[] keys = new String[count];
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = randomString(random, 1 + random.nextInt(5));
+            // 一条记录对应多个词条
+            values[i] = random.nextInt(150);
+        }
+        PrefixIndex index = PrefixIndex.build(keys, values, count);
+
+        Integer[] order = IntStream.range(0, count).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparing(i -> keys[i].toLowerCase()));
+        for (int q = 0; q < 500; q++) {
+            String prefix = randomString(random, random.nextInt(3));
+            int limit = 1 + random.nextInt(20);
+
+            Set<Integer> expected = new LinkedHashSet<>();
+            for (int i : order) {
+                if (expected.size() < limit && keys[i].toLowerCase().startsWith(prefix.toLowerCase())) {
+                    expected.add(values[i]);
+                }
+            }
+            assertArrayEquals(toArray(expected), index.search(prefix, limit), () -> "prefix: " + prefix);
+        }
+    }
+
+    @Test
+    void onlyCountedKeysAreIndexed() {
+        PrefixIndex index = PrefixIndex.build(new String[]{"abc", "abd", "abe"}, new int[]{0, 1, 2}, 2);
+        assertArrayEquals(new int[]{0, 1}, index.search("AB", 10));
+        assertArrayEquals(new int[0], index.search("abe", 10));
+    }
+
+    private static int[] toArray(Set<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialGridTest {
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(5);
+        for (int round = 0; round < 50; round++) {
+            Points points = Points.random(random, random.nextInt(300));
+            SpatialGrid grid = points.grid();
+            for (int q = 0; q < 40; q++) {
+                // 查询点可能落在网格外
+                double x = random.nextDouble() * 6000 - 3000;
+                double z = random.nextDouble() * 6000 - 3000;
+                int k = 1 + random.nextInt(10);
+
+                List<Double> expected = points.distancesFrom(x, z).stream()
+                    .sorted().limit(k).collect(Collectors.toList());
+                List<SpatialGrid.Hit> hits = grid.nearest(x, z, k);
+                assertEquals(expected, hits.stream().map(SpatialGrid.Hit::getDistance).collect(Collectors.toList()));
+                for (SpatialGrid.Hit hit : hits) {
+                    assertEquals(points.distance(hit.getId(), x, z), hit.getDistance(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void withinMatchesBruteForce() {
+        Random random = new Random(6);
+        for (int round = 0; round < 50; round++) {
+            Points points = Points.random(random, random.nextInt(300));
+            SpatialGrid grid = points.grid();
+            for (int q = 0; q < 40; q++) {
+                double x = random.nextDouble() * 4000 - 2000;
+                double z = random.nextDouble() * 4000 - 2000;
+                double radius = random.nextDouble() * 800;
+                int limit = 1 + random.nextInt(20);
+
+                List<Integer> matching = IntStream.range(0, points.count)
+                    .filter(i -> i % 3 != 0 && points.distance(i, x, z) <= radius)
+                    .boxed().collect(Collectors.toList());
+                SpatialGrid.Result result = grid.within(x, z, radius, id -> id % 3 != 0, limit);
+                assertEquals(matching.size(), result.getTotal());
+                assertNearestFirst(points, matching, result, x, z, limit);
+            }
+        }
+    }
+
+    @Test
+    void boxMatchesBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            Points points = Points.random(random, random.nextInt(300));
+            SpatialGrid grid = points.grid();
+            for (int q = 0; q < 40; q++) {
+                // 角点顺序任意
+                double x1 = random.nextDouble() * 4000 - 2000;
+                double z1 = random.nextDouble() * 4000 - 2000;
+                double x2 = x1 + random.nextDouble() * 1600 - 800;
+                double z2 = z1 + random.nextDouble() * 1600 - 800;
+                double x = random.nextDouble() * 4000 - 2000;
+                double z = random.nextDouble() * 4000 - 2000;
+                int limit = 1 + random.nextInt(20);
+
+                List<Integer> matching = IntStream.range(0, points.count)
+                    .filter(i -> points.xs[i] >= Math.min(x1, x2) && points.xs[i] <= Math.max(x1, x2)
+                        && points.zs[i] >= Math.min(z1, z2) && points.zs[i] <= Math.max(z1, z2))
+                    .boxed().collect(Collectors.toList());
+                SpatialGrid.Result result = grid.box(x1, z1, x2, z2, x, z, id -> true, limit);
+                assertEquals(matching.size(), result.getTotal());
+                assertNearestFirst(points, matching, result, x, z, limit);
+            }
+        }
+    }
+
+    @Test
+    void emptyGridReturnsNothing() {
+        SpatialGrid grid = SpatialGrid.build(new int[0], new double[0], new double[0], 0);
+        assertTrue(grid.nearest(0, 0, 3).isEmpty());
+        assertEquals(0, grid.within(0, 0, 100, id -> true, 5).getTotal());
+    }
+
+    // 命中应是全部匹配点中最近的 limit 个，距离相同的点之间顺序不限
+    private static void assertNearestFirst(Points points, List<Integer> matching, SpatialGrid.Result result,
+                                           double x, double z, int limit) {
+        List<Double> expected = matching.stream().map(i -> points.distance(i, x, z)).sorted()
+            .limit(limit).collect(Collectors.toList());
+        List<Double> actual = new ArrayList<>();
+        for (SpatialGrid.Hit hit : result.getHits()) {
+            assertTrue(matching.contains(hit.getId()), () -> "unexpected id " + hit.getId());
+            actual.add(hit.getDistance());
+        }
+        assertEquals(expected, actual);
+    }
+
+    private static final class Points {
+        final int count;
+        final double[] xs;
+        final double[] zs;
+
+        Points(int count) {
+            this.count = count;
+            this.xs = new double[count];
+            this.zs = new double[count];
+        }
+
+        static Points random(Random random, int count) {
+            Points points = new Points(count);
+            // 一部分点聚在一起，一部分散开，也有重合的点
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && random.nextInt(10) == 0) {
+                    points.xs[i] = points.xs[i - 1];
+                    points.zs[i] = points.zs[i - 1];
+                } else if (random.nextBoolean()) {
+                    points.xs[i] = random.nextGaussian() * 50;
+                    points.zs[i] = random.nextGaussian() * 50;
+                } else {
+                    points.xs[i] = random.nextDouble() * 4000 - 2000;
+                    points.zs[i] = random.nextDouble() * 4000 - 2000;
+                }
+            }
+            return points;
+        }
+
+        SpatialGrid grid() {
+            return SpatialGrid.build(IntStream.range(0, count).toArray(), xs, zs, count);
+        }
+
+        double distance(int i, double x, double z) {
+            return Math.sqrt((xs[i] - x) * (xs[i] - x) + (zs[i] - z) * (zs[i] - z));
+        }
+
+        List<Double> distancesFrom(double x, double z) {
+            return IntStream.range(0, count).mapToObj(i -> distance(i, x, z))
+                .sorted(Comparator.naturalOrder()).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.fletime.toriifind.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKTest {
+    @Test
+    void matchesFullSort() {
+        Random random = new Random(3);
+        for (int round = 0; round < 500; round++) {
+            int count = random.nextInt(60);
+            int capacity = 1 + random.nextInt(12);
+            int[] scores = new int[count];
+            // 得分范围小，覆盖大量同分
+            for (int i = 0; i < count; i++) {
+                scores[i] = random.nextInt(8) - 2;
+            }
+
+            TopK top = new TopK(capacity);
+            int[] order = IntStream.range(0, count).toArray();
+            shuffle(order, random);
+            for (int id : order) {
+                top.offer(id, scores[id]);
+            }
+
+            // 参照实现：得分从高到低，同分时下标小的在前
+            int[] expected = IntStream.range(0, count).boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> -scores[i]).thenComparingInt(i -> i))
+                .limit(capacity).mapToInt(Integer::intValue).toArray();
+            assertEquals(count, top.getOffered());
+            assertArrayEquals(expected, top.drain(), () -> "scores: " + Arrays.toString(scores));
+        }
+    }
+
+    @Test
+    void drainEmptiesTheHeap() {
+        TopK top = new TopK(2);
+        top.offer(5, 1);
+        assertArrayEquals(new int[]{5}, top.drain());
+        assertArrayEquals(new int[0], top.drain());
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.fletime.toriifind.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpTransportTest {
+    @Test
+    void stalledBodyTimesOut() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket peer = server.accept()) {
+            // 先发一部分内容，之后对端不再发送也不关闭连接
+            OutputStream out = peer.getOutputStream();
+            out.write(new byte[]{1, 2, 3});
+            out.flush();
+
+            try (InputStream body = HttpTransport.withDeadline(client.getInputStream(), Duration.ofMillis(300))) {
+                assertArrayEquals(new byte[]{1, 2, 3}, body.readNBytes(3));
+                assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> assertThrows(HttpTimeoutException.class, body::read));
+            }
+        }
+    }
+
+    @Test
+    void bodyReadInTimeIsUnaffected() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket peer = server.accept()) {
+            peer.getOutputStream().write(new byte[]{4, 5});
+            peer.shutdownOutput();
+
+            try (InputStream body = HttpTransport.withDeadline(client.getInputStream(), Duration.ofMillis(200))) {
+                assertArrayEquals(new byte[]{4, 5}, body.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void stalledResponseTimesOutWithRequestTimeout() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // 响应头与一部分内容及时发出，之后不再发送也不关闭连接
+            Thread peer = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    InputStream in = socket.getInputStream();
+                    int matched = 0;
+                    while (matched < 4) {
+                        int b = in.read();
+                        if (b < 0) {
+                            return;
+                        }
+                        matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+                    }
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\nabc").getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    done.await();
+                } catch (IOException | InterruptedException ignored) {
+                    // 测试结束时关闭
+                }
+            });
+            peer.setDaemon(true);
+            peer.start();
+
+            String url = "http://127.0.0.1:" + server.getLocalPort() + "/data.json";
+            HttpTransport.Timeout timeout = HttpTransport.Timeout.PROBE;
+            HttpResponse<InputStream> response = HttpTransport.send(
+                HttpTransport.request(url, timeout), HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, response.statusCode());
+
+            long start = System.nanoTime();
+            try (InputStream body = HttpTransport.body(response, timeout)) {
+                assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), body.readNBytes(3));
+                // 按探测场景的期限结束，而不是下载的三分钟
+                assertTimeoutPreemptively(timeout.getBodyDuration().plusSeconds(5),
+                    () -> assertThrows(HttpTimeoutException.class, body::read));
+            }
+            long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            assertTrue(elapsed >= timeout.getBodyDuration().toMillis() - 100, "elapsed " + elapsed + "ms");
+        } finally {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.data.LandmarkSection;
+import com.fletime.toriifind.data.LandmarkStore;
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalSearchTest {
+    private static final char[] NAME_CHARS = {'星', '海', '镇', '长', '安', 'a', 'b', ' '};
+    private static final char[] KEYWORD_CHARS = {'星', '海', '镇', 'x', 'i', 'n', 'h', 'a', 'z', 'c'};
+
+    @Test
+    void matchesSearchingFromScratch() {
+        Random random = new Random(17);
+        LandmarkSection section = section(random, 300);
+        BitSet allowed = new BitSet();
+        for (int i = 0; i < section.size(); i++) {
+            if (random.nextInt(3) != 0) {
+                allowed.set(i);
+            }
+        }
+
+        IncrementalSearch search = new IncrementalSearch();
+        String keyword = "";
+        for (int step = 0; step < 400; step++) {
+            // 大多数时候在上一次的关键字后追加，偶尔退格或重新输入
+            int action = random.nextInt(10);
+            if (action == 0 || keyword.length() >= 4) {
+                keyword = "";
+            } else if (action == 1 && !keyword.isEmpty()) {
+                keyword = keyword.substring(0, keyword.length() - 1);
+            }
+            keyword += KEYWORD_CHARS[random.nextInt(KEYWORD_CHARS.length)];
+            BitSet filter = random.nextBoolean() ? allowed : null;
+
+            String current = keyword;
+            LynnJsonService.SearchResult expected = LynnJsonService.searchByNameOrPinyin(section, keyword, filter, 10);
+            LynnJsonService.SearchResult actual = search.search(section, keyword, filter, 10);
+            int total = bruteForceTotal(section, keyword, filter);
+            if (total == 0) {
+                // 没有命中时走容错搜索，它有时间预算，结果不一定稳定
+                continue;
+            }
+            assertEquals(total, actual.getTotal(), () -> "keyword: " + current);
+            assertEquals(total, expected.getTotal(), () -> "keyword: " + current);
+            assertEquals(ids(expected), ids(actual), () -> "keyword: " + current);
+        }
+    }
+
+    @Test
+    void reloadedSectionIsSearchedFromScratch() {
+        IncrementalSearch search = new IncrementalSearch();
+        search.search(section("星海镇", "长安城"), "星", null, 10);
+
+        // 上一次的命中下标 0 在新分区中是另一条记录
+        LandmarkSection reloaded = section("长安城", "星海镇");
+        assertEquals(List.of("1"), ids(search.search(reloaded, "星海", null, 10)));
+    }
+
+    private static int bruteForceTotal(LandmarkSection section, String keyword, BitSet allowed) {
+        boolean pinyinKeyword = keyword.matches("^[a-zA-Z]+$");
+        int total = 0;
+        for (int i = 0; i < section.size(); i++) {
+            boolean hit = section.getName(i).contains(keyword)
+                || (pinyinKeyword && section.getPinyin(i).matches(keyword.toLowerCase()));
+            if (hit && (allowed == null || allowed.get(i))) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private static LandmarkSection section(Random random, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int k = 1 + random.nextInt(5); k > 0; k--) {
+                name.append(NAME_CHARS[random.nextInt(NAME_CHARS.length)]);
+            }
+            names[i] = name.toString();
+        }
+        return section(names);
+    }
+
+    private static LandmarkSection section(String... names) {
+        LandmarkStore.Builder builder = new LandmarkStore.Builder();
+        for (int i = 0; i < names.length; i++) {
+            builder.add(String.valueOf(i), names[i], "白级", "Normal", "0", "64", "0");
+        }
+        return new LandmarkSection("zeroth", builder.build());
+    }
+
+    private static List<String> ids(LynnJsonService.SearchResult result) {
+        return result.getLandmarks().stream().map(LynnLandmark::getId).collect(Collectors.toList());
+    }
+}
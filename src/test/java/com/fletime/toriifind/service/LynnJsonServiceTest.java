@@ -0,0 +1,89 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkSection;
+import com.fletime.toriifind.data.LandmarkStore;
+import com.fletime.toriifind.service.LynnApiService.LynnLandmark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LynnJsonServiceTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void zerothNumbersMatchExactly() {
+        LandmarkSection section = section("112", "120", "12", "7");
+        assertEquals(List.of("12"), ids(LynnJsonService.searchById(section, "12", 10, false)));
+        assertEquals(List.of("7", "12"), ids(LynnJsonService.searchById(section, "5-15", 10, false)));
+        assertEquals(List.of(), ids(LynnJsonService.searchById(section, "11", 10, false)));
+    }
+
+    @Test
+    void houtuNumbersFallBackToContains() {
+        LandmarkSection section = section("H-112", "H-120", "B-11");
+        assertEquals(List.of("H-112", "B-11"), ids(LynnJsonService.searchById(section, "11", 10)));
+    }
+
+    @Test
+    void filteredOutMatchesDoNotFallBackToFuzzy() {
+        LandmarkSection section = section("1", "2");
+        section.buildFuzzyIndex();
+        // "地标1" 与 "地标2" 只差一个字，容错搜索会命中 "地标2"
+        BitSet allowed = new BitSet();
+        allowed.set(1);
+        LynnJsonService.SearchResult result = LynnJsonService.searchByNameOrPinyin(section, "地标1", allowed, 10);
+        assertEquals(0, result.getTotal());
+        assertEquals(List.of(), ids(result));
+    }
+
+    @Test
+    void fuzzyFallbackWaitsForIndex() {
+        LandmarkSection section = section("1", "2");
+        // 容错索引建好之前不做容错匹配，也不在查询线程上建立
+        assertEquals(0, LynnJsonService.searchByNameOrPinyin(section, "地标3", null, 10).getTotal());
+        section.buildFuzzyIndex();
+        assertEquals(List.of("1", "2"), ids(LynnJsonService.searchByNameOrPinyin(section, "地标3", null, 10)));
+    }
+
+    @Test
+    void fileSectionsAreParsedFromTheirOwnRange() throws IOException {
+        Path file = dir.resolve("lynn.json");
+        // 同名分区以最后一次为准；缺少的分区为空
+        Files.writeString(file, "\uFEFF{\"zeroth\": [{\"id\": \"1\", \"name\": \"旧\", \"grade\": \"白级\"}],"
+            + " \"version\": \"v2\", \"zeroth\" :\n [ {\"id\": \"2\", \"name\": \"新\\u6751\", \"grade\": \"白级\"},"
+            + " {\"id\": \"3\", \"name\": \"镇\", \"grade\": \"白级\", \"coordinates\": {\"x\": 1, \"y\": 2, \"z\": 3}} ] }");
+        LandmarkDataset dataset = LynnJsonService.loadDatasetFromFile(file);
+        // 读取完成后可以替换数据文件，已记下的分区不受影响
+        Files.writeString(file, "{}");
+
+        assertEquals("v2", dataset.getVersion());
+        LandmarkSection zeroth = dataset.getZerothSection();
+        assertEquals(2, zeroth.size());
+        assertEquals("新村", zeroth.getName(0));
+        assertEquals("3", zeroth.getId(1));
+        assertEquals(3.0, zeroth.getStore().getZ(1));
+        assertEquals(0, dataset.getHoutuSection().size());
+    }
+
+    private static LandmarkSection section(String... ids) {
+        LandmarkStore.Builder builder = new LandmarkStore.Builder();
+        for (String id : ids) {
+            builder.add(id, "地标" + id, "白级", "Normal", "0", "64", "0");
+        }
+        return new LandmarkSection("zeroth", builder.build());
+    }
+
+    private static List<String> ids(LynnJsonService.SearchResult result) {
+        return result.getLandmarks().stream().map(LynnLandmark::getId).collect(Collectors.toList());
+    }
+}
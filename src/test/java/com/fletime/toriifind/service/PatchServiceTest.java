@@ -0,0 +1,193 @@
+package com.fletime.toriifind.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PatchServiceTest {
+    @Test
+    void modifiedStaysInPlaceAndAddedIsAppended() throws IOException {
+        Map<String, JsonObject> patches = new HashMap<>();
+        patches.put("1", patch("1", "2", changes(List.of(record("b", "B2")), List.of(record("d", "D")), List.of("c"))));
+
+        JsonObject result = apply(PatchService.fetchChain(patches::get, "1", "2"),
+            data("1", record("a", "A"), record("b", "B"), record("c", "C")));
+
+        assertEquals("2", result.get("version").getAsString());
+        assertEquals(List.of("a:A", "b:B2", "d:D"), records(result, "zeroth"));
+        assertEquals(List.of(), records(result, "houtu"));
+    }
+
+    @Test
+    void removedThenAddedAgainMovesToTheEnd() throws IOException {
+        Map<String, JsonObject> patches = new HashMap<>();
+        patches.put("1", patch("1", "2", changes(List.of(), List.of(), List.of("a"))));
+        patches.put("2", patch("2", "3", changes(List.of(), List.of(record("a", "A2")), List.of())));
+
+        JsonObject result = apply(PatchService.fetchChain(patches::get, "1", "3"),
+            data("1", record("a", "A"), record("b", "B")));
+
+        assertEquals(List.of("b:B", "a:A2"), records(result, "zeroth"));
+    }
+
+    @Test
+    void otherFieldsAreKeptAndMissingSectionsCreated() throws IOException {
+        Map<String, JsonObject> patches = new HashMap<>();
+        JsonObject patch = patch("1", "2", changes(List.of(), List.of(), List.of()));
+        patch.add("houtu", changes(List.of(), List.of(record("h", "H")), List.of()));
+        patches.put("1", patch);
+
+        StringWriter out = new StringWriter();
+        PatchService.fetchChain(patches::get, "1", "2")
+            .apply(new StringReader("{\"meta\":{\"x\":[1,2]},\"zeroth\":[],\"version\":\"1\"}"), out);
+        JsonObject result = JsonParser.parseString(out.toString()).getAsJsonObject();
+
+        assertEquals(JsonParser.parseString("{\"x\":[1,2]}"), result.get("meta"));
+        assertEquals("2", result.get("version").getAsString());
+        assertEquals(List.of("h:H"), records(result, "houtu"));
+    }
+
+    @Test
+    void brokenChainIsRejected() throws IOException {
+        Map<String, JsonObject> patches = new HashMap<>();
+        patches.put("1", patch("1", "2", changes(List.of(), List.of(), List.of())));
+        // 缺少从 2 出发的补丁
+        patches.put("3", patch("3", "4", changes(List.of(), List.of(), List.of())));
+        assertNull(PatchService.fetchChain(patches::get, "1", "4"));
+
+        // 补丁起点与请求的版本不衔接
+        patches.put("2", patch("9", "3", changes(List.of(), List.of(), List.of())));
+        assertThrows(IOException.class, () -> PatchService.fetchChain(patches::get, "1", "4"));
+    }
+
+    @Test
+    void chainIsCappedAtThirtyPatches() throws IOException {
+        Map<String, JsonObject> patches = new HashMap<>();
+        for (int i = 0; i < PatchService.MAX_CHAIN_LENGTH + 1; i++) {
+            patches.put(String.valueOf(i), patch(String.valueOf(i), String.valueOf(i + 1),
+                changes(List.of(), List.of(record("r" + i, "R")), List.of())));
+        }
+
+        assertNotNull(PatchService.fetchChain(patches::get, "0", String.valueOf(PatchService.MAX_CHAIN_LENGTH)));
+        assertNull(PatchService.fetchChain(patches::get, "0", String.valueOf(PatchService.MAX_CHAIN_LENGTH + 1)));
+        // 补丁链在目标版本前就没有后续时同样不算成功
+        assertNull(PatchService.fetchChain(patches::get, "5", "99"));
+    }
+
+    @Test
+    void matchesApplyingPatchesOneByOne() throws IOException {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            // 数据中的id互不相同
+            LinkedHashMap<String, JsonObject> expected = new LinkedHashMap<>();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                String id = "id" + random.nextInt(8);
+                expected.putIfAbsent(id, record(id, "v0"));
+            }
+            List<JsonObject> initial = new ArrayList<>(expected.values());
+
+            Map<String, JsonObject> patches = new HashMap<>();
+            int length = 1 + random.nextInt(6);
+            for (int p = 0; p < length; p++) {
+                List<JsonObject> modified = new ArrayList<>();
+                List<JsonObject> added = new ArrayList<>();
+                List<String> removed = new ArrayList<>();
+                for (int k = random.nextInt(5); k > 0; k--) {
+                    String id = "id" + random.nextInt(8);
+                    String value = "v" + (p + 1) + "-" + k;
+                    switch (random.nextInt(3)) {
+                        case 0 -> modified.add(record(id, value));
+                        case 1 -> added.add(record(id, value));
+                        default -> removed.add(id);
+                    }
+                }
+                // 参照实现：按 removed、modified、added 的顺序逐个应用
+                removed.forEach(expected::remove);
+                modified.forEach(record -> expected.put(record.get("id").getAsString(), record));
+                added.forEach(record -> expected.put(record.get("id").getAsString(), record));
+                patches.put(String.valueOf(p), patch(String.valueOf(p), String.valueOf(p + 1),
+                    changes(modified, added, removed)));
+            }
+
+            JsonObject result = apply(PatchService.fetchChain(patches::get, "0", String.valueOf(length)),
+                data("0", initial.toArray(new JsonObject[0])));
+            List<String> want = new ArrayList<>();
+            expected.values().forEach(record -> want.add(text(record)));
+            assertEquals(want, records(result, "zeroth"), "round " + round);
+        }
+    }
+
+    private static JsonObject apply(PatchService.Changes changes, JsonObject data) throws IOException {
+        StringWriter out = new StringWriter();
+        changes.apply(new StringReader(data.toString()), out);
+        return JsonParser.parseString(out.toString()).getAsJsonObject();
+    }
+
+    private static JsonObject data(String version, JsonObject... records) {
+        JsonObject data = new JsonObject();
+        data.addProperty("version", version);
+        JsonArray zeroth = new JsonArray();
+        for (JsonObject record : records) {
+            zeroth.add(record);
+        }
+        data.add("zeroth", zeroth);
+        data.add("houtu", new JsonArray());
+        return data;
+    }
+
+    private static JsonObject patch(String from, String to, JsonObject zeroth) {
+        JsonObject patch = new JsonObject();
+        patch.addProperty("from", from);
+        patch.addProperty("to", to);
+        patch.add("zeroth", zeroth);
+        return patch;
+    }
+
+    private static JsonObject changes(List<JsonObject> modified, List<JsonObject> added, List<String> removed) {
+        JsonObject changes = new JsonObject();
+        JsonArray modifiedArray = new JsonArray();
+        modified.forEach(modifiedArray::add);
+        JsonArray addedArray = new JsonArray();
+        added.forEach(addedArray::add);
+        JsonArray removedArray = new JsonArray();
+        removed.forEach(removedArray::add);
+        changes.add("modified", modifiedArray);
+        changes.add("added", addedArray);
+        changes.add("removed", removedArray);
+        return changes;
+    }
+
+    private static JsonObject record(String id, String name) {
+        JsonObject record = new JsonObject();
+        record.addProperty("id", id);
+        record.addProperty("name", name);
+        return record;
+    }
+
+    private static String text(JsonElement record) {
+        return record.getAsJsonObject().get("id").getAsString() + ":" + record.getAsJsonObject().get("name").getAsString();
+    }
+
+    private static List<String> records(JsonObject data, String section) {
+        List<String> result = new ArrayList<>();
+        data.getAsJsonArray(section).forEach(record -> result.add(text(record)));
+        return result;
+    }
+}
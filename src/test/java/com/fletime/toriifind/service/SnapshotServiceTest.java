@@ -0,0 +1,185 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkSection;
+import com.fletime.toriifind.data.LandmarkStore;
+import com.fletime.toriifind.index.PinyinIndex;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotServiceTest {
+    private static final char[] NAME_CHARS = {'长', '安', '城', '行', '重', '庆', '星', '海', '镇', '村', ' ', 'A', '1'};
+    private static final String[] GRADES = {"A", "B", "C", "Unknown"};
+    private static final String[] STATUSES = {"Normal", "Locked", "Destroyed"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotAnswersLikeTheParsedFile() throws IOException {
+        Random random = new Random(13);
+        Path dataFile = writeData(random, 300, 200);
+        LandmarkDataset parsed = LynnJsonService.loadDatasetFromFile(dataFile);
+        SnapshotService.write(dataFile, SnapshotService.keyOf(dataFile), parsed);
+
+        LandmarkDataset loaded = SnapshotService.load(dataFile);
+        assertNotNull(loaded);
+        assertEquals(parsed.getVersion(), loaded.getVersion());
+        assertSameStore(parsed.getZerothStore(), loaded.getZerothStore());
+        assertSameStore(parsed.getHoutuStore(), loaded.getHoutuStore());
+
+        for (String source : new String[]{"zth", "houtu"}) {
+            LandmarkSection section = loaded.getSection(source);
+            for (int q = 0; q < 500; q++) {
+                String keyword = randomName(random, 1 + random.nextInt(2));
+                int[] expected = IntStream.range(0, section.size())
+                    .filter(i -> section.getName(i).contains(keyword)).toArray();
+                assertArrayEquals(expected, section.searchName(keyword), () -> "name: " + keyword);
+
+                String letters = randomLetters(random);
+                int[] pinyinExpected = IntStream.range(0, section.size())
+                    .filter(i -> PinyinIndex.of(section.getName(i)).matches(letters)).toArray();
+                assertArrayEquals(pinyinExpected, section.searchPinyin(letters), () -> "pinyin: " + letters);
+            }
+        }
+    }
+
+    @Test
+    void sectionsAreReadOnFirstUse() throws IOException {
+        Path dataFile = writeData(new Random(23), 40, 30);
+        SnapshotService.write(dataFile, SnapshotService.keyOf(dataFile), LynnJsonService.loadDatasetFromFile(dataFile));
+        Path snapshotFile = SnapshotService.getSnapshotFile(dataFile);
+
+        // 段表位于 56 字节的文件头之后：零洲数据、零洲文本索引、后土数据、后土文本索引、文件末尾
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        ByteBuffer table = ByteBuffer.wrap(bytes, 56, 40);
+        long[] offsets = new long[5];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = table.getLong();
+        }
+        assertEquals(bytes.length, offsets[4]);
+        // 破坏后土文本索引的开头；只用零洲时不会读到
+        Arrays.fill(bytes, (int) offsets[3], (int) offsets[3] + 4, (byte) 0xFF);
+        Files.write(snapshotFile, bytes);
+
+        LandmarkDataset loaded = SnapshotService.load(dataFile);
+        assertNotNull(loaded);
+        assertNull(loaded.peekSection("zth"));
+        assertEquals(40, loaded.getZerothSection().size());
+        assertNull(loaded.peekSection("houtu"));
+        assertFalse(loaded.whenLoaded().isDone());
+        assertThrows(UncheckedIOException.class, loaded::getHoutuSection);
+    }
+
+    @Test
+    void parsedDatasetCompletesOnceBothSectionsLoad() throws IOException {
+        LandmarkDataset parsed = LynnJsonService.loadDatasetFromFile(writeData(new Random(29), 10, 10));
+        parsed.getHoutuSection();
+        assertFalse(parsed.whenLoaded().isDone());
+        parsed.getZerothSection();
+        assertTrue(parsed.whenLoaded().isDone());
+    }
+
+    @Test
+    void changedDataFileInvalidatesSnapshot() throws IOException {
+        Path dataFile = writeData(new Random(17), 20, 20);
+        SnapshotService.write(dataFile, SnapshotService.keyOf(dataFile), LynnJsonService.loadDatasetFromFile(dataFile));
+        assertNotNull(SnapshotService.load(dataFile));
+
+        Files.writeString(dataFile, " ", StandardOpenOption.APPEND);
+        assertNull(SnapshotService.load(dataFile));
+    }
+
+    @Test
+    void truncatedSnapshotIsIgnored() throws IOException {
+        Path dataFile = writeData(new Random(19), 50, 50);
+        SnapshotService.write(dataFile, SnapshotService.keyOf(dataFile), LynnJsonService.loadDatasetFromFile(dataFile));
+        Path snapshotFile = SnapshotService.getSnapshotFile(dataFile);
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        Files.write(snapshotFile, Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertNull(SnapshotService.load(dataFile));
+    }
+
+    private static void assertSameStore(LandmarkStore expected, LandmarkStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getId(i), actual.getId(i));
+            assertEquals(expected.getName(i), actual.getName(i));
+            assertEquals(expected.getGrade(i), actual.getGrade(i));
+            assertEquals(expected.getStatus(i), actual.getStatus(i));
+            assertEquals(expected.hasCoordinates(i), actual.hasCoordinates(i));
+            if (expected.hasCoordinates(i)) {
+                assertEquals(expected.getX(i), actual.getX(i));
+                assertEquals(expected.getY(i), actual.getY(i));
+                assertEquals(expected.getZ(i), actual.getZ(i));
+            }
+        }
+    }
+
+    private Path writeData(Random random, int zeroth, int houtu) throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("version", "v" + random.nextInt(1000));
+        root.add("zeroth", records(random, "Z", zeroth));
+        root.add("houtu", records(random, "H", houtu));
+        Path dataFile = dir.resolve("lynn.json");
+        Files.writeString(dataFile, root.toString());
+        return dataFile;
+    }
+
+    private static JsonArray records(Random random, String prefix, int count) {
+        JsonArray records = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            JsonObject record = new JsonObject();
+            record.addProperty("id", prefix + i);
+            record.addProperty("name", randomName(random, 1 + random.nextInt(5)));
+            record.addProperty("grade", GRADES[random.nextInt(GRADES.length)]);
+            record.addProperty("status", STATUSES[random.nextInt(STATUSES.length)]);
+            if (random.nextBoolean()) {
+                JsonObject coordinates = new JsonObject();
+                coordinates.addProperty("x", random.nextInt(20000) - 10000);
+                coordinates.addProperty("y", random.nextInt(256));
+                coordinates.addProperty("z", (random.nextInt(20000) - 10000) / 2.0);
+                record.add("coordinates", coordinates);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static String randomName(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(NAME_CHARS[random.nextInt(NAME_CHARS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String randomLetters(Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            builder.append("achngioxz".charAt(random.nextInt(9)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.fletime.toriifind.service;
+
+import com.fletime.toriifind.data.LandmarkDataset;
+import com.fletime.toriifind.data.LandmarkStore;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Utf8JsonScannerTest {
+    // 需要转义的字符、多字节字符与代理对
+    private static final String[] PIECES = {"a", "Z", "0", " ", "\"", "\\", "/", "\n", "\t", "<", "星", "海", "é", "😀"};
+
+    @Test
+    void readsTheSameTreeAsGson() throws IOException {
+        Random random = new Random(3);
+        Gson gson = new Gson();
+        for (int n = 0; n < 300; n++) {
+            JsonElement tree = randomValue(random, 0);
+            // Gson 默认把 < 等字符写成 \\u 转义，顺带覆盖 \\u 的处理
+            String text = gson.toJson(tree);
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            assertEquals(JsonParser.parseString(text), read(new Utf8JsonScanner(buffer), buffer), text);
+        }
+    }
+
+    @Test
+    void resumesFromRecordedPositionAfterSkipping() throws IOException {
+        Random random = new Random(5);
+        for (int n = 0; n < 100; n++) {
+            JsonObject root = new JsonObject();
+            for (int i = 0; i < 4; i++) {
+                root.add("k" + i, randomValue(random, 1));
+            }
+            String text = new Gson().toJson(root);
+            JsonObject expected = JsonParser.parseString(text).getAsJsonObject();
+            // 带 BOM 开头
+            byte[] bytes = ("\uFEFF" + text).getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+            Utf8JsonScanner json = new Utf8JsonScanner(buffer);
+            json.beginObject();
+            while (json.hasNext()) {
+                json.nextName();
+                String name = json.tokenString();
+                int position = json.position();
+                json.skipValue();
+                assertEquals(expected.get(name), read(new Utf8JsonScanner(buffer, position), buffer), name);
+            }
+            json.endObject();
+        }
+    }
+
+    @Test
+    void loadedDatasetDoesNotHoldTheFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("lynn.json");
+        Files.writeString(file, "{\"zeroth\":[{\"id\":\"Z1\",\"name\":\"星海镇\",\"grade\":\"A\",\"status\":\"Normal\","
+            + "\"coordinates\":{\"x\":1,\"y\":\"64\",\"z\":-2.5}}],\"version\":\"v1\","
+            + "\"houtu\":[{\"id\":\"H\\u0031\",\"name\":\"\\\"冷\\\"谷\",\"grade\":\"B\",\"status\":\"Closed\"}]}");
+        LandmarkDataset dataset = LynnJsonService.loadDatasetFromFile(file);
+
+        // 分区尚未加载时替换文件，之后加载的仍是原来的内容
+        Path replacement = dir.resolve("lynn.json.part");
+        Files.writeString(replacement, "{}");
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertEquals("v1", dataset.getVersion());
+        LandmarkStore zeroth = dataset.getZerothStore();
+        assertEquals("星海镇", zeroth.getName(0));
+        assertEquals(-2.5, zeroth.getZ(0));
+        LandmarkStore houtu = dataset.getHoutuStore();
+        assertEquals("H1", houtu.getId(0));
+        assertEquals("\"冷\"谷", houtu.getName(0));
+    }
+
+    // 按扫描器的接口把值还原成 Gson 的树；生成的文本没有空白，数组与字符串直接看下一个字节区分
+    private static JsonElement read(Utf8JsonScanner json, ByteBuffer buffer) throws IOException {
+        if (json.isObject()) {
+            JsonObject object = new JsonObject();
+            json.beginObject();
+            while (json.hasNext()) {
+                json.nextName();
+                String name = json.tokenString();
+                object.add(name, read(json, buffer));
+            }
+            json.endObject();
+            return object;
+        }
+        byte next = buffer.get(json.position());
+        if (next == '[') {
+            JsonArray array = new JsonArray();
+            json.beginArray();
+            while (json.hasNext()) {
+                array.add(read(json, buffer));
+            }
+            json.endArray();
+            return array;
+        }
+        json.nextValue();
+        if (next == '"') {
+            return new JsonPrimitive(json.tokenString());
+        }
+        if (json.isNull()) {
+            return JsonNull.INSTANCE;
+        }
+        return json.isPrimitive() ? JsonParser.parseString(json.tokenString()) : new JsonPrimitive(Boolean.parseBoolean(json.tokenString()));
+    }
+
+    private static JsonElement randomValue(Random random, int depth) {
+        int kind = random.nextInt(depth > 3 ? 4 : 6);
+        switch (kind) {
+            case 0:
+                return new JsonPrimitive(randomString(random));
+            case 1:
+                return new JsonPrimitive(random.nextInt(2001) - 1000);
+            case 2:
+                return random.nextBoolean() ? new JsonPrimitive(random.nextBoolean()) : JsonNull.INSTANCE;
+            case 3:
+                return new JsonPrimitive(random.nextInt(100000) / 100.0);
+            case 4: {
+                JsonArray array = new JsonArray();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    array.add(randomValue(random, depth + 1));
+                }
+                return array;
+            }
+            default: {
+                JsonObject object = new JsonObject();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    object.add(randomString(random), randomValue(random, depth + 1));
+                }
+                return object;
+            }
+        }
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return builder.toString();
+    }
+}